@@ -2,10 +2,12 @@ package com.example.springboot;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import tk.mybatis.spring.annotation.MapperScan;
 
 @SpringBootApplication
 @MapperScan("com.example.springboot.dao")
+@EnableScheduling
 public class SpringbootApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,115 @@
+package com.example.springboot.config;
+
+import com.example.springboot.utils.CommentFingerprint;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动时补齐表结构（只增不改，已存在则跳过）
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DatabaseSchemaInitializer implements ApplicationRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // 每一步独立执行：某一步失败（如大表 ALTER 超时）不影响后面的步骤
+        step("comment.content_hash", () -> {
+            // 去重指纹：生成列 + 索引，任何写入路径都会自动维护，历史数据也一并生效
+            if (!columnExists("comment", "content_hash")) {
+                log.warn("⚠️ 正在为 comment 新增 STORED 生成列 content_hash，会重建整张表，数据量大时启动耗时较长");
+                jdbcTemplate.execute("ALTER TABLE comment ADD COLUMN content_hash BIGINT AS ("
+                        + CommentFingerprint.SQL_EXPRESSION + ") STORED, "
+                        + "ADD INDEX idx_comment_content_hash (content_hash)");
+                log.info("✅ 已新增 comment.content_hash 列及索引");
+            }
+        });
+        step("comment.cid 索引", () -> {
+            // 父评论存在性按 cid 批量查询
+            if (!indexExists("comment", "cid")) {
+                jdbcTemplate.execute("ALTER TABLE comment ADD INDEX idx_comment_cid (cid)");
+                log.info("✅ 已新增 comment.cid 索引");
+            }
+        });
+        step("sentiment.cid 索引", () -> {
+            // ES 同步按块批量取情感标签（cid IN (...)）
+            if (!indexExists("sentiment", "cid")) {
+                jdbcTemplate.execute("ALTER TABLE sentiment ADD INDEX idx_sentiment_cid (cid)");
+                log.info("✅ 已新增 sentiment.cid 索引");
+            }
+        });
+        step("comment.updated_at", () -> {
+            // 增量同步水位：行修改时间由数据库维护，Python 写入的情感结果也会更新
+            if (!columnExists("comment", "updated_at")) {
+                jdbcTemplate.execute("ALTER TABLE comment ADD COLUMN updated_at DATETIME(3) NOT NULL "
+                        + "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3), "
+                        + "ADD INDEX idx_comment_updated_at (updated_at, id)");
+                log.info("✅ 已新增 comment.updated_at 列及索引");
+            }
+        });
+        step("comment.created_at", () -> {
+            // 插入时间：增量同步据此跳过刚插入（已由上传流水线建索引）的行；历史行取加列时刻，早于其 updated_at 水位
+            if (!columnExists("comment", "created_at")) {
+                jdbcTemplate.execute("ALTER TABLE comment ADD COLUMN created_at DATETIME(3) NOT NULL "
+                        + "DEFAULT CURRENT_TIMESTAMP(3)");
+                log.info("✅ 已新增 comment.created_at 列");
+            }
+        });
+        step("sentiment.updated_at", () -> {
+            if (!columnExists("sentiment", "updated_at")) {
+                jdbcTemplate.execute("ALTER TABLE sentiment ADD COLUMN updated_at DATETIME(3) NOT NULL "
+                        + "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3), "
+                        + "ADD INDEX idx_sentiment_updated_at (updated_at, sid)");
+                log.info("✅ 已新增 sentiment.updated_at 列及索引");
+            }
+        });
+        step("es_sync_checkpoint", () -> {
+            // MySQL → ES 同步断点（全量：last_id；增量：last_time + last_id）
+            jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS es_sync_checkpoint (
+                        name       VARCHAR(64) NOT NULL PRIMARY KEY,
+                        last_id    BIGINT      NOT NULL DEFAULT 0,
+                        last_time  DATETIME(3) NULL,
+                        synced     BIGINT      NOT NULL DEFAULT 0,
+                        status     VARCHAR(16) NOT NULL,
+                        updated_at DATETIME    NOT NULL
+                    )""");
+            if (!columnExists("es_sync_checkpoint", "last_time")) {
+                jdbcTemplate.execute("ALTER TABLE es_sync_checkpoint ADD COLUMN last_time DATETIME(3) NULL AFTER last_id");
+            }
+        });
+    }
+
+    private void step(String name, Runnable action) {
+        try {
+            action.run();
+        } catch (DataAccessException e) {
+            log.error("⚠️ 表结构补齐失败（{}），依赖它的功能将不可用，修复后重启即可补齐：{}", name, e.getMessage(), e);
+        }
+    }
+
+    // 是否存在以该列开头的索引
+    private boolean indexExists(String table, String column) {
+        Integer n = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM information_schema.STATISTICS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ? AND SEQ_IN_INDEX = 1
+                """, Integer.class, table, column);
+        return n != null && n > 0;
+    }
+
+    private boolean columnExists(String table, String column) {
+        Integer n = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM information_schema.COLUMNS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?
+                """, Integer.class, table, column);
+        return n != null && n > 0;
+    }
+}
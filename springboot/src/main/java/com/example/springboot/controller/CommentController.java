@@ -2,20 +2,33 @@ package com.example.springboot.controller;
 
 import com.example.springboot.common.Result;
 import com.example.springboot.common.ResultCode;
+import com.example.springboot.dto.CommentSearchQuery;
 import com.example.springboot.entity.Comment;
+import com.example.springboot.service.CommentExportService;
 import com.example.springboot.service.CommentService;
+import com.example.springboot.service.CommentSearchRouter;
 import com.example.springboot.service.CommentSearchService;
+import com.example.springboot.service.CommentSuggestService;
 import com.example.springboot.service.DataSyncService;
 import com.example.springboot.dao.CommentDao;
 import com.example.springboot.exception.CustomException;
 import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 
+@Slf4j
 @CrossOrigin(origins = "*")
 @RestController
 @RequestMapping("/comment")
@@ -30,6 +43,15 @@ public class CommentController {
     @Autowired
     private CommentSearchService commentSearchService;
 
+    @Autowired
+    private CommentSearchRouter commentSearchRouter;
+
+    @Autowired
+    private CommentExportService commentExportService;
+
+    @Autowired
+    private CommentSuggestService commentSuggestService;
+
     @Autowired
     private DataSyncService dataSyncService;
 
@@ -63,11 +85,11 @@ public class CommentController {
         return Result.success(list);
     }
 
-    // ✅ 同步 MySQL 数据到 Elasticsearch
+    // ✅ 同步 MySQL 数据到 Elasticsearch（resume=false 时忽略断点从头同步）
     @PostMapping("/sync")
-    public Result syncCommentsToEs() {
+    public Result syncCommentsToEs(@RequestParam(defaultValue = "true") boolean resume) {
         try {
-            String msg = dataSyncService.syncAllCommentsToES();
+            String msg = dataSyncService.syncAllCommentsToES(resume);
             return Result.success(msg);
         } catch (Exception e) {
             e.printStackTrace();
@@ -76,8 +98,11 @@ public class CommentController {
     }
 
     // ✅ 多条件搜索接口（供前端检索页调用）
+    // 默认按 page / size 浅分页；传 cursor 参数进入游标模式（空串为第一页，之后传回上次返回的 cursor）
+    // facets=true 同时返回统计（情感 / 点赞 / 日趋势 / 活跃用户），size=0 只要统计；trackTotalHits 为 true / false / 整数
     @GetMapping("/search")
     public Result searchComments(
+            @RequestParam(required = false) String pid,
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) String username,
             @RequestParam(required = false) Integer sentiment,
@@ -87,21 +112,76 @@ public class CommentController {
             @RequestParam(required = false) Integer maxLike,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean facets,
+            @RequestParam(required = false) String trackTotalHits,
             @RequestHeader("uuid") String uuid
 
     ) {
         try {
-
-            Map<String, Object> result = commentSearchService.search(
-                    keyword, username, sentiment, startTime, endTime, minLike, maxLike, page, size,uuid
-            );
+            CommentSearchQuery query = CommentSearchQuery.of(uuid, pid, keyword, username, sentiment,
+                    startTime, endTime, minLike, maxLike, page, size, facets, trackTotalHits);
+            if (cursor != null) {
+                return Result.success(commentSearchService.searchByCursor(query, cursor));
+            }
+
+            // ES 不可用时自动改用本地 Lucene 检索（返回 engine=lucene）
+            Map<String, Object> result = commentSearchRouter.search(query);
             return Result.success(result);
+        } catch (CustomException e) {
+            return Result.error(e.getMsg());
         } catch (Exception e) {
             e.printStackTrace();
             return Result.error(ResultCode.SEARCH_ERROR.msg);
         }
     }
 
+    // ✅ 检索框联想：type=keyword 联想评论关键词，type=username 联想用户名，只在当前租户内
+    @GetMapping("/suggest")
+    public Result suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "keyword") String type,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestHeader("uuid") String uuid
+    ) {
+        try {
+            return Result.success(commentSuggestService.suggest(uuid, CommentSuggestService.Type.of(type), prefix, size));
+        } catch (CustomException e) {
+            return Result.error(e.getMsg());
+        } catch (Exception e) {
+            log.error("❌ 联想查询失败（{} '{}'）：", type, prefix, e);
+            return Result.error(ResultCode.SEARCH_ERROR.msg);
+        }
+    }
+
+    // ✅ 导出检索结果：过滤条件同 /search，format=csv / ndjson / xlsx，遍历全部命中边查边写
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportComments(
+            @RequestParam(required = false) String pid,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) Integer sentiment,
+            @RequestParam(required = false) String startTime,
+            @RequestParam(required = false) String endTime,
+            @RequestParam(required = false) Integer minLike,
+            @RequestParam(required = false) Integer maxLike,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader("uuid") String uuid
+    ) {
+        CommentExportService.Format f = CommentExportService.Format.of(format);
+        // 开始写出后就不能再返回错误信息，先检查
+        commentExportService.check();
+        CommentSearchQuery query = CommentSearchQuery.of(uuid, pid, keyword, username, sentiment,
+                startTime, endTime, minLike, maxLike, 0, 0, false, null);
+
+        String filename = "comments_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + "." + f.extension;
+        StreamingResponseBody body = out -> commentExportService.export(query, f, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(f.contentType))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
     // ✅ 评论 + 情感 联查接口
     @GetMapping("/with-sentiment")
     public Result getCommentsWithSentiment(
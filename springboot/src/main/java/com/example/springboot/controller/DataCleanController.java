@@ -1,9 +1,17 @@
 package com.example.springboot.controller;
 
-import com.example.springboot.service.DataCleanService;
+import com.example.springboot.common.Result;
+import com.example.springboot.common.ResultCode;
+import com.example.springboot.dto.IngestJob;
+import com.example.springboot.exception.CustomException;
+import com.example.springboot.service.IngestJobService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
 
 @CrossOrigin(origins = "*", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.POST})
 @RestController
@@ -11,26 +19,59 @@ import org.springframework.web.multipart.MultipartFile;
 public class DataCleanController {
 
     @Autowired
-    private DataCleanService dataCleanService;
+    private IngestJobService ingestJobService;
 
     /**
-     * 上传文件并调用Python Flask接口执行清洗
+     * 上传文件并提交清洗任务（异步执行，立即返回）
      * @param file 上传的Excel或CSV文件
      * @param projectName 项目名称
      * @param options 前端传入的清洗选项（JSON数组字符串）
-     * @return Flask返回的清洗结果JSON（含数据库preview）
+     * @param engine 清洗引擎 flask / java，不传时使用 clean.engine 配置
+     * @return 任务状态（jobId 即项目 pid），进度通过 /clean/jobs/{jobId} 查询
      */
     @PostMapping("/upload")
-    public String uploadAndClean(
+    public Result uploadAndClean(
             @RequestPart("file") MultipartFile file,
             @RequestPart("project_name") String projectName,
             @RequestPart(value = "options", required = false) String options,
-            @RequestPart("user_uuid") String userUuid
-    ) {
+            @RequestPart("user_uuid") String userUuid,
+            @RequestPart(value = "engine", required = false) String engine
+    ) throws IOException {
         if (options == null || options.isBlank()) {
             options = "[]"; // ✅ 手动设置默认值
         }
-        return dataCleanService.processData(file, projectName, options, userUuid);
+        return Result.success(ingestJobService.submit(file, projectName, options, userUuid, engine));
+    }
+
+    /**
+     * 查询任务进度：阶段、已处理行数、行/秒、错误
+     */
+    @GetMapping("/jobs/{jobId}")
+    public Result getJob(@PathVariable String jobId) {
+        IngestJob job = ingestJobService.getJob(jobId);
+        if (job == null) {
+            throw new CustomException(ResultCode.DATA_NOT_FOUND);
+        }
+        return Result.success(job);
+    }
+
+    /**
+     * 任务进度 SSE 推送（event: progress），任务结束后服务端关闭连接
+     */
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter jobEvents(@PathVariable String jobId) {
+        return ingestJobService.subscribe(jobId);
+    }
+
+    /**
+     * 取消任务
+     */
+    @PostMapping("/jobs/{jobId}/cancel")
+    public Result cancelJob(@PathVariable String jobId) {
+        if (!ingestJobService.cancel(jobId)) {
+            return Result.error("任务不存在或已结束");
+        }
+        return Result.success(ingestJobService.getJob(jobId));
     }
 
 }
@@ -1,10 +1,14 @@
 package com.example.springboot.controller;
 
 import com.example.springboot.common.Result;
+import com.example.springboot.dto.BulkIndexResult;
+import com.example.springboot.service.CommentIndexManager;
 import com.example.springboot.service.CommentIndexService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/es")
 @RequiredArgsConstructor
@@ -12,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 public class EsReindexController {
 
     private final CommentIndexService commentIndexService;
+    private final CommentIndexManager commentIndexManager;
 
     /**
      * ✅ 手动重建指定项目的 ES 索引
@@ -19,11 +24,35 @@ public class EsReindexController {
     @PostMapping("/reindex/{pid}")
     public Result reindex(@PathVariable String pid) {
         try {
-            commentIndexService.indexCommentsByPid(pid);
-            return Result.success("✅ 索引已重建: " + pid);
+            BulkIndexResult result = commentIndexService.indexCommentsByPid(pid);
+            return Result.success(result);
         } catch (Exception e) {
             e.printStackTrace();
             return Result.error("索引重建失败：" + e.getMessage());
         }
     }
+
+    /**
+     * ✅ 全量重建：写入新版本索引后原子切换别名，重建期间检索不受影响
+     */
+    @PostMapping("/rebuild")
+    public Result rebuild() throws IOException {
+        return Result.success(commentIndexManager.rebuild());
+    }
+
+    /**
+     * ✅ 回滚：别名切回上一个版本
+     */
+    @PostMapping("/rollback")
+    public Result rollback() throws IOException {
+        return Result.success("✅ 别名已切回：" + commentIndexManager.rollback());
+    }
+
+    /**
+     * ✅ 当前别名指向的索引
+     */
+    @GetMapping("/alias")
+    public Result alias() throws IOException {
+        return Result.success(commentIndexManager.aliasTargets());
+    }
 }
@@ -6,7 +6,10 @@ import org.apache.ibatis.annotations.Select;
 import org.springframework.stereotype.Repository;
 import tk.mybatis.mapper.common.Mapper;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public interface CommentDao extends Mapper<Comment> {
@@ -34,9 +37,55 @@ public interface CommentDao extends Mapper<Comment> {
                                       @Param("content") String content,
                                       @Param("cleanStatus") String cleanStatus);
 
+    // ✅ 批量查询已存在的去重指纹（content_hash 为 (username, content, clean_status) 的生成列，有索引）
+    @Select({
+            "<script>",
+            "SELECT content_hash FROM comment WHERE content_hash IN",
+            "<foreach collection='hashes' item='h' open='(' separator=',' close=')'>#{h}</foreach>",
+            "</script>"
+    })
+    List<Long> selectExistingHashes(@Param("hashes") Collection<Long> hashes);
+
     @Select("SELECT COUNT(*) > 0 FROM comment WHERE cid = #{cid}")
     Boolean existsByCid(@Param("cid") String cid);
 
+    // ✅ 批量查询已存在的评论编号（子评论父存在性检查）
+    @Select({
+            "<script>",
+            "SELECT cid FROM comment WHERE cid IN",
+            "<foreach collection='cids' item='cid' open='(' separator=',' close=')'>#{cid}</foreach>",
+            "</script>"
+    })
+    List<String> selectExistingCids(@Param("cids") Collection<String> cids);
+
+    // ✅ 按主键游标分页（全量同步 ES，避免整表加载与深分页）
+    @Select("SELECT * FROM comment WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<Comment> selectAfterId(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    // ✅ 增量同步：水位 (updated_at, id) 之后、且已过沉淀期的修改行
+    // includeInserts=false 时只取插入之后又被修改过的行（updated_at > created_at），新插入的行由上传流水线建索引
+    @Select("""
+        SELECT * FROM comment
+        WHERE updated_at >= #{afterTime} AND (updated_at > #{afterTime} OR id > #{afterId})
+          AND (#{includeInserts} OR updated_at > created_at)
+          AND updated_at < NOW(3) - INTERVAL #{settleSeconds} SECOND
+        ORDER BY updated_at, id
+        LIMIT #{limit}
+    """)
+    List<Comment> selectChangedSince(@Param("afterTime") LocalDateTime afterTime, @Param("afterId") long afterId,
+                                     @Param("includeInserts") boolean includeInserts,
+                                     @Param("settleSeconds") int settleSeconds, @Param("limit") int limit);
+
+    // ✅ 增量同步积压：水位之后的行数与最早一行距今秒数
+    @Select("""
+        SELECT COUNT(*) AS backlog,
+               COALESCE(TIMESTAMPDIFF(SECOND, MIN(updated_at), NOW(3)), 0) AS lag
+        FROM comment
+        WHERE updated_at >= #{afterTime} AND (updated_at > #{afterTime} OR id > #{afterId})
+          AND updated_at > created_at
+    """)
+    Map<String, Object> selectSyncBacklog(@Param("afterTime") LocalDateTime afterTime, @Param("afterId") long afterId);
+
     // 按项目 pid 获取评论（用于增量同步 ES）
     @Select("SELECT * FROM comment WHERE pid = #{pid} ORDER BY comment_time DESC")
     List<Comment> selectByProject(@Param("pid") String pid);
@@ -14,6 +14,11 @@ public interface ProjectDao extends Mapper<Project> {
             "WHERE pid = #{pid}")
     void updateStatus(Project project);
 
+    // ✅ 任务开始运行：更新状态与开始时间
+    @Update("UPDATE project SET status = #{status}, start_time = #{startTime} " +
+            "WHERE pid = #{pid}")
+    void updateStart(Project project);
+
     List<Project> selectByStatus(@Param("status") String status);
 
     // ✅ 新增：根据uid查所有项目
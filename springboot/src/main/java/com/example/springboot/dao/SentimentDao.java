@@ -5,6 +5,8 @@ import org.springframework.stereotype.Repository;
 import tk.mybatis.mapper.common.Mapper;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -29,4 +31,33 @@ public interface SentimentDao extends Mapper<Sentiment> {
     @Select("SELECT sentiment_label FROM sentiment WHERE cid = #{cid} LIMIT 1")
     Integer findLabelByCid(@Param("cid") String cid);
 
+    // ✅ 批量取情感标签（ES 同步按块富化，避免逐条查询）
+    @Select({
+            "<script>",
+            "SELECT cid, sentiment_label AS sentimentLabel FROM sentiment WHERE cid IN",
+            "<foreach collection='cids' item='cid' open='(' separator=',' close=')'>#{cid}</foreach>",
+            "ORDER BY sid",
+            "</script>"
+    })
+    List<Sentiment> selectLabelsByCids(@Param("cids") Collection<String> cids);
+
+    // ✅ 增量同步：水位 (updated_at, sid) 之后、且已过沉淀期的情感结果
+    @Select("""
+        SELECT sid, cid, pid, sentiment_label, updated_at FROM sentiment
+        WHERE updated_at >= #{afterTime} AND (updated_at > #{afterTime} OR sid > #{afterId})
+          AND updated_at < NOW(3) - INTERVAL #{settleSeconds} SECOND
+        ORDER BY updated_at, sid
+        LIMIT #{limit}
+    """)
+    List<Sentiment> selectChangedSince(@Param("afterTime") LocalDateTime afterTime, @Param("afterId") long afterId,
+                                       @Param("settleSeconds") int settleSeconds, @Param("limit") int limit);
+
+    @Select("""
+        SELECT COUNT(*) AS backlog,
+               COALESCE(TIMESTAMPDIFF(SECOND, MIN(updated_at), NOW(3)), 0) AS lag
+        FROM sentiment
+        WHERE updated_at >= #{afterTime} AND (updated_at > #{afterTime} OR sid > #{afterId})
+    """)
+    Map<String, Object> selectSyncBacklog(@Param("afterTime") LocalDateTime afterTime, @Param("afterId") long afterId);
+
 }
@@ -0,0 +1,33 @@
+package com.example.springboot.dao;
+
+import com.example.springboot.entity.SyncCheckpoint;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.springframework.stereotype.Repository;
+import tk.mybatis.mapper.common.Mapper;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface SyncCheckpointDao extends Mapper<SyncCheckpoint> {
+
+    // ✅ 写入 / 覆盖断点
+    @Insert("""
+        INSERT INTO es_sync_checkpoint (name, last_id, synced, status, updated_at)
+        VALUES (#{name}, #{lastId}, #{synced}, #{status}, NOW())
+        ON DUPLICATE KEY UPDATE last_id = VALUES(last_id), synced = VALUES(synced),
+                                status = VALUES(status), updated_at = NOW()
+    """)
+    void save(@Param("name") String name, @Param("lastId") long lastId,
+              @Param("synced") long synced, @Param("status") String status);
+
+    // ✅ 写入增量同步水位
+    @Insert("""
+        INSERT INTO es_sync_checkpoint (name, last_id, last_time, synced, status, updated_at)
+        VALUES (#{name}, #{lastId}, #{lastTime}, #{synced}, 'incremental', NOW())
+        ON DUPLICATE KEY UPDATE last_id = VALUES(last_id), last_time = VALUES(last_time),
+                                synced = VALUES(synced), updated_at = NOW()
+    """)
+    void saveWatermark(@Param("name") String name, @Param("lastTime") LocalDateTime lastTime,
+                       @Param("lastId") long lastId, @Param("synced") long synced);
+}
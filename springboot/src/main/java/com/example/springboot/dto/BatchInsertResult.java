@@ -0,0 +1,35 @@
+package com.example.springboot.dto;
+
+import com.example.springboot.entity.Comment;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BatchInsertResult {
+    private int inserted;
+    private int batches;
+    private List<Failure> failures = new ArrayList<>();
+
+    // 单行失败记录（整批失败后逐行重试时产生）
+    @Data
+    public static class Failure {
+        private final Comment comment;
+        private final String error;
+    }
+
+    public void addInserted(int n) {
+        inserted += n;
+    }
+
+    public void addFailure(Comment comment, String error) {
+        failures.add(new Failure(comment, error));
+    }
+
+    public void merge(BatchInsertResult other) {
+        inserted += other.inserted;
+        batches += other.batches;
+        failures.addAll(other.failures);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.springboot.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次 ES 批量索引的汇总
+ */
+@Data
+public class BulkIndexResult {
+    private long indexed;
+    private long failed;
+    // 局部更新时目标文档不存在（尚未建索引）而跳过的条数
+    private long skipped;
+    // 实际发出的 _bulk 请求数（含 429 重试）
+    private long requests;
+    private long retried;
+    private long elapsedMillis;
+    // 失败明细（只保留前若干条）
+    private List<String> failures = new ArrayList<>();
+
+    public double getDocsPerSec() {
+        return elapsedMillis <= 0 ? indexed : indexed * 1000.0 / elapsedMillis;
+    }
+
+    public String summary() {
+        return String.format("成功 %d 条，失败 %d 条，耗时 %.1f 秒，%.0f 条/秒",
+                indexed, failed, elapsedMillis / 1000.0, getDocsPerSec());
+    }
+}
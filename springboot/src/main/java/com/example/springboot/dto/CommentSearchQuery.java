@@ -0,0 +1,45 @@
+package com.example.springboot.dto;
+
+import java.util.Objects;
+
+/**
+ * 评论检索条件（已规范化：空串视为未填，点赞上下限 ≤0 视为未填），同时作为检索结果缓存的 key
+ * size 为 0 表示只统计不取命中；trackTotalHits 为 null 时用 ES 默认（精确统计到 10000）
+ */
+public record CommentSearchQuery(String uuid,
+                                 String pid,
+                                 String keyword,
+                                 String username,
+                                 Integer sentiment,
+                                 String startTime,
+                                 String endTime,
+                                 Integer likeFrom,
+                                 Integer likeTo,
+                                 int page,
+                                 int size,
+                                 boolean facets,
+                                 String trackTotalHits) {
+
+    public static CommentSearchQuery of(String uuid, String pid, String keyword, String username, Integer sentiment,
+                                        String startTime, String endTime, Integer minLike, Integer maxLike,
+                                        int page, int size, boolean facets, String trackTotalHits) {
+        return new CommentSearchQuery(trim(uuid), trim(pid), trim(keyword), trim(username), sentiment,
+                trim(startTime), trim(endTime),
+                minLike != null && minLike > 0 ? minLike : null,
+                maxLike != null && maxLike > 0 ? maxLike : null,
+                page, size, facets, trim(trackTotalHits));
+    }
+
+    /**
+     * 只看过滤 / 打分条件的指纹（不含分页、聚合等展示参数），用于校验游标
+     */
+    public int conditionHash() {
+        return Objects.hash(uuid, pid, keyword, username, sentiment, startTime, endTime, likeFrom, likeTo);
+    }
+
+    private static String trim(String s) {
+        if (s == null) return null;
+        s = s.trim();
+        return s.isEmpty() ? null : s;
+    }
+}
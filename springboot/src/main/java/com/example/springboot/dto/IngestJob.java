@@ -0,0 +1,211 @@
+package com.example.springboot.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 上传清洗任务的运行状态（jobId 即项目 pid）
+ * - 由任务线程写入，接口 / SSE 线程读取，字段均为 volatile 或原子类型
+ * - 项目表只持久化 status / start_time / end_time，行数与错误明细只保存在内存中
+ */
+public class IngestJob {
+
+    // 保留的最近错误条数
+    private static final int MAX_ERRORS = 50;
+
+    private final String jobId;
+    private final String projectName;
+    private final String uuid;
+    // 清洗引擎：flask / java
+    private final String engine;
+
+    // queued / running / success / fail / cancelled
+    private volatile String state = "queued";
+    // queued / parse / clean / cleaned / index / done
+    private volatile String stage = "queued";
+    private volatile String message;
+    private volatile String fileUrl;
+
+    private final AtomicLong rowsProcessed = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final Deque<String> errors = new ArrayDeque<>();
+
+    // 流水线各阶段已处理行数 / 当前输入队列深度（块数）
+    private final Map<String, AtomicLong> stageRows = new ConcurrentHashMap<>();
+    private final Map<String, Integer> queueDepth = new ConcurrentHashMap<>();
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "Asia/Shanghai")
+    private final LocalDateTime createTime = LocalDateTime.now();
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "Asia/Shanghai")
+    private volatile LocalDateTime startTime;
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "Asia/Shanghai")
+    private volatile LocalDateTime endTime;
+
+    private volatile boolean cancelRequested;
+
+    public IngestJob(String jobId, String projectName, String uuid, String engine) {
+        this.jobId = jobId;
+        this.projectName = projectName;
+        this.uuid = uuid;
+        this.engine = engine;
+    }
+
+    // ====================== 状态变更（任务线程） ======================
+
+    public void start() {
+        startTime = LocalDateTime.now();
+        state = "running";
+    }
+
+    public void finish(String state, String message) {
+        this.message = message;
+        this.endTime = LocalDateTime.now();
+        this.stage = "done";
+        this.state = state;
+    }
+
+    public void addRows(long n) {
+        rowsProcessed.addAndGet(n);
+    }
+
+    public void addStageRows(String stage, long n) {
+        stageRows.computeIfAbsent(stage, k -> new AtomicLong()).addAndGet(n);
+    }
+
+    public void setQueueDepth(String stage, int depth) {
+        queueDepth.put(stage, depth);
+    }
+
+    public void addError(String error) {
+        errorCount.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() >= MAX_ERRORS) errors.pollFirst();
+            errors.addLast(error);
+        }
+    }
+
+    /**
+     * 协作式取消：任务在各阶段 / 每个入库块之间调用
+     */
+    public void checkCancelled() {
+        if (cancelRequested) throw new CancellationException("任务已取消");
+    }
+
+    public void requestCancel() {
+        cancelRequested = true;
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return endTime != null;
+    }
+
+    // ====================== getter & setter ======================
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getFileUrl() {
+        return fileUrl;
+    }
+
+    public void setFileUrl(String fileUrl) {
+        this.fileUrl = fileUrl;
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed.get();
+    }
+
+    /**
+     * 自开始运行以来的平均吞吐
+     */
+    public double getRowsPerSec() {
+        LocalDateTime start = startTime;
+        if (start == null) return 0;
+        LocalDateTime end = endTime != null ? endTime : LocalDateTime.now();
+        long millis = Math.max(Duration.between(start, end).toMillis(), 1);
+        return Math.round(rowsProcessed.get() * 10000.0 / millis) / 10.0;
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+
+    public Map<String, Long> getStageRows() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        stageRows.forEach((stage, rows) -> snapshot.put(stage, rows.get()));
+        return snapshot;
+    }
+
+    public Map<String, Integer> getQueueDepth() {
+        return new TreeMap<>(queueDepth);
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+}
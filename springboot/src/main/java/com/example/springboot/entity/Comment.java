@@ -3,6 +3,7 @@ package com.example.springboot.entity;
 import javax.persistence.*;
 import java.time.LocalDateTime;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.format.annotation.DateTimeFormat;
 
 
@@ -49,6 +50,11 @@ public class Comment {
     @Column(name = "parent_cid", length = 50)
     private String parentCid;  // 父评论编号（二级评论时使用）
 
+    // 行最后修改时间（数据库 ON UPDATE 维护，只在增量同步查询中读取，不参与增删改）
+    @Transient
+    @JsonIgnore
+    private LocalDateTime updatedAt;
+
     // ====================== getter & setter ======================
 
 
@@ -147,5 +153,13 @@ public class Comment {
     public void setParentCid(String parentCid) {
         this.parentCid = parentCid;
     }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
 
@@ -1,11 +1,18 @@
 package com.example.springboot.entity;
+import com.alibaba.fastjson2.annotation.JSONField;
+import com.example.springboot.utils.KeywordExtractor;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class CommentDocument {
 
+    // 每条评论最多写入的联想词数
+    private static final int MAX_SUGGEST_INPUTS = 20;
+
     private String cid;
     private String content_clean;
     private String username;
@@ -14,4 +21,15 @@ public class CommentDocument {
     private String comment_time;
     private String pid;
     private String uuid;
+    // 关键词联想（completion 字段）的输入，由 content_clean 抽取，导出时不输出
+    @JSONField(serialize = false)
+    private List<String> keyword_suggest;
+
+    /**
+     * 写入 ES 前按 content_clean 填充联想词
+     */
+    public CommentDocument withSuggest() {
+        if (keyword_suggest == null) keyword_suggest = KeywordExtractor.suggestInputs(content_clean, MAX_SUGGEST_INPUTS);
+        return this;
+    }
 }
@@ -1,6 +1,7 @@
 package com.example.springboot.entity;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import javax.persistence.*;
@@ -32,6 +33,11 @@ public class Sentiment {
     @Column(name = "analysis_time", nullable = false)
     private LocalDateTime analysisTime;
 
+    // 行最后修改时间（数据库 ON UPDATE 维护，只在增量同步查询中读取，不参与增删改）
+    @Transient
+    @JsonIgnore
+    private LocalDateTime updatedAt;
+
     // ====================== getter & setter ======================
 
     public Integer getSid() {
@@ -81,5 +87,13 @@ public class Sentiment {
     public void setAnalysisTime(LocalDateTime analysisTime) {
         this.analysisTime = analysisTime;
     }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
 
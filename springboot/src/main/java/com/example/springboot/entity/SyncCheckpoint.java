@@ -0,0 +1,84 @@
+package com.example.springboot.entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * MySQL → ES 同步断点（每种同步任务一行）
+ */
+@Table(name = "es_sync_checkpoint")
+public class SyncCheckpoint {
+
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;  // 同步任务名，如 full
+
+    @Column(name = "last_id")
+    private Long lastId;  // 已同步到的 comment.id
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss.SSS", timezone = "Asia/Shanghai")
+    @Column(name = "last_time")
+    private LocalDateTime lastTime;  // 增量同步：已同步到的行修改时间（与 last_id 组成水位）
+
+    @Column(name = "synced")
+    private Long synced;  // 已同步条数（全量：本轮累计；增量：启用以来累计）
+
+    @Column(name = "status", length = 16)
+    private String status;  // 全量：running / done，running 表示上次未跑完；增量：incremental
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "Asia/Shanghai")
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // ====================== getter & setter ======================
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(Long lastId) {
+        this.lastId = lastId;
+    }
+
+    public LocalDateTime getLastTime() {
+        return lastTime;
+    }
+
+    public void setLastTime(LocalDateTime lastTime) {
+        this.lastTime = lastTime;
+    }
+
+    public Long getSynced() {
+        return synced;
+    }
+
+    public void setSynced(Long synced) {
+        this.synced = synced;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
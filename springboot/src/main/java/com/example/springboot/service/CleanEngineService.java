@@ -0,0 +1,107 @@
+package com.example.springboot.service;
+
+import com.example.springboot.utils.CommentCleaner;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * 清洗引擎选择与 Java 清洗引擎的构建
+ * - flask：上传文件转发给 Python /clean（原有流程，默认）
+ * - java：在入库流水线的 clean 阶段直接清洗，省去文件回传与 JSON 序列化
+ * 去除链接 / 去除表情 / 空白规范化 / 长度过滤 只有 Java 引擎实现，flask 引擎勾选时提交即拒绝
+ */
+@Slf4j
+@Service
+public class CleanEngineService {
+
+    public static final String ENGINE_FLASK = "flask";
+    public static final String ENGINE_JAVA = "java";
+
+    // data_cleaning.py 不认识的选项
+    public static final List<String> JAVA_ONLY_OPTIONS = List.of(CommentCleaner.STRIP_URL, CommentCleaner.STRIP_EMOJI,
+            CommentCleaner.NORMALIZE_SPACE, CommentCleaner.LENGTH_FILTER);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 默认清洗引擎
+    @Value("${clean.engine:flask}")
+    private String defaultEngine;
+
+    // 与 Python 情感分析共用的表情表，去除表情时保留其中的表情
+    @Value("${clean.emoji-map-path:python_service/sentiment_dicts/emoji_map.json}")
+    private String emojiMapPath;
+
+    @Value("${clean.min-length:2}")
+    private int minLength;
+
+    @Value("${clean.max-length:255}")
+    private int maxLength;
+
+    private Set<String> keepEmojis = Collections.emptySet();
+
+    @PostConstruct
+    public void loadEmojiMap() {
+        File file = new File(emojiMapPath);
+        if (!file.isFile()) {
+            log.warn("⚠️ 未找到表情表 {}，去除表情时不保留任何表情", file.getAbsolutePath());
+            return;
+        }
+        try {
+            Map<String, Double> map = objectMapper.readValue(file, new TypeReference<Map<String, Double>>() {});
+            keepEmojis = Collections.unmodifiableSet(new LinkedHashSet<>(map.keySet()));
+            log.info("✅ 表情表加载完成：{} 个", keepEmojis.size());
+        } catch (Exception e) {
+            log.warn("⚠️ 表情表解析失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 规范化引擎名，未指定时使用默认引擎
+     */
+    public String resolveEngine(String engine) {
+        if (!StringUtils.hasText(engine)) return defaultEngine;
+        String e = engine.trim().toLowerCase(Locale.ROOT);
+        if (!ENGINE_JAVA.equals(e) && !ENGINE_FLASK.equals(e)) {
+            throw new IllegalArgumentException("不支持的清洗引擎：" + engine);
+        }
+        return e;
+    }
+
+    /**
+     * 检查所选引擎是否支持全部清洗选项，Python 清洗服务会静默忽略不认识的选项
+     */
+    public void checkOptions(String engine, String optionsJson) {
+        if (!ENGINE_FLASK.equals(engine)) return;
+        List<String> unsupported = parseOptions(optionsJson).stream().filter(JAVA_ONLY_OPTIONS::contains).toList();
+        if (!unsupported.isEmpty()) {
+            throw new IllegalArgumentException("Python 清洗服务不支持：" + String.join("、", unsupported) + "，请改用 Java 清洗引擎或取消这些选项");
+        }
+    }
+
+    /**
+     * 按前端清洗选项（JSON 数组字符串）构建 Java 清洗引擎
+     */
+    public CommentCleaner createCleaner(String optionsJson) {
+        return new CommentCleaner(parseOptions(optionsJson), keepEmojis, minLength, maxLength);
+    }
+
+    private List<String> parseOptions(String optionsJson) {
+        try {
+            return StringUtils.hasText(optionsJson)
+                    ? objectMapper.readValue(optionsJson, new TypeReference<List<String>>() {})
+                    : Collections.emptyList();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("清洗选项格式错误：" + optionsJson);
+        }
+    }
+}
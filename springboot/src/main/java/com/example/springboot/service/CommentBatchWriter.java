@@ -0,0 +1,93 @@
+package com.example.springboot.service;
+
+import com.example.springboot.dto.BatchInsertResult;
+import com.example.springboot.entity.Comment;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * 评论批量写入
+ * - JDBC addBatch（配合 rewriteBatchedStatements=true 合并为多行 INSERT）
+ * - 每批一个事务；整批失败则回滚并逐行重试，定位失败行
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CommentBatchWriter {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO comment (cid, content, comment_time, username, like_count, reply_count,
+                                 is_abnormal, pid, clean_status, comment_type, parent_cid)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${ingest.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 按 batchSize 分批写入，调用方负责保证父评论先于子评论传入
+     */
+    public BatchInsertResult insert(List<Comment> comments) {
+        BatchInsertResult result = new BatchInsertResult();
+        int size = Math.max(batchSize, 1);
+
+        for (int from = 0; from < comments.size(); from += size) {
+            List<Comment> batch = comments.subList(from, Math.min(from + size, comments.size()));
+            result.setBatches(result.getBatches() + 1);
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), this::bind));
+                result.addInserted(batch.size());
+            } catch (DataAccessException e) {
+                log.warn("⚠️ 批量入库失败，逐行重试：batch={}，err={}", batch.size(), rootMessage(e));
+                for (Comment c : batch) {
+                    try {
+                        jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, c));
+                        result.addInserted(1);
+                    } catch (DataAccessException ex) {
+                        result.addFailure(c, rootMessage(ex));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void bind(PreparedStatement ps, Comment c) throws SQLException {
+        ps.setString(1, c.getCid());
+        ps.setString(2, c.getContent());
+        if (c.getCommentTime() != null) {
+            ps.setTimestamp(3, Timestamp.valueOf(c.getCommentTime()));
+        } else {
+            ps.setNull(3, Types.TIMESTAMP);
+        }
+        ps.setString(4, c.getUsername());
+        ps.setInt(5, c.getLikeCount() == null ? 0 : c.getLikeCount());
+        ps.setInt(6, c.getReplyCount() == null ? 0 : c.getReplyCount());
+        ps.setBoolean(7, Boolean.TRUE.equals(c.getAbnormal()));
+        ps.setString(8, c.getPid());
+        ps.setString(9, c.getCleanStatus());
+        ps.setInt(10, c.getCommentType() == null ? 0 : c.getCommentType());
+        ps.setString(11, c.getParentCid());
+    }
+
+    private String rootMessage(Exception e) {
+        Throwable root = NestedExceptionUtils.getMostSpecificCause(e);
+        return root.getMessage();
+    }
+}
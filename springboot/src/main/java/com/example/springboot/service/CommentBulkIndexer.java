@@ -0,0 +1,357 @@
+package com.example.springboot.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import com.example.springboot.dto.BulkIndexResult;
+import com.example.springboot.entity.CommentDocument;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * ES 批量索引（_bulk）
+ * - 按条数 / 字节数 / 时间三个阈值之一触发发送
+ * - 同一次会话最多 concurrent-requests 个请求在途，超出时 add 阻塞（背压）
+ * - 429（ES 写入队列满）的文档按指数退避重试，其余失败逐条收集
+ * - 每个请求完成后让涉及租户（uuid）的检索结果缓存失效
+ * - 写入前填充联想词字段 keyword_suggest
+ * - 同时写本地 Lucene 检索索引（ES 故障时的备用）；search.engine=lucene 时只写 Lucene
+ * 用法：try (Session s = open("label", CommentIndexManager.ALIAS)) { s.accept(doc) ... ; s.finish(); }
+ */
+@Slf4j
+@Service
+public class CommentBulkIndexer {
+
+    private static final int MAX_FAILURE_DETAILS = 20;
+
+    @Autowired
+    private ElasticsearchClient client;
+
+    @Autowired
+    private CommentSearchCache searchCache;
+
+    @Autowired
+    private LuceneCommentSearchEngine lucene;
+
+    // 每个 _bulk 请求最多文档数
+    @Value("${es.bulk.max-actions:1000}")
+    private int maxActions;
+
+    // 每个 _bulk 请求最大体积（MB，按文档估算）
+    @Value("${es.bulk.max-size-mb:5}")
+    private long maxSizeMb;
+
+    // 缓冲区最长停留时间，超时即发送
+    @Value("${es.bulk.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    // 同一次会话在途请求数
+    @Value("${es.bulk.concurrent-requests:2}")
+    private int concurrentRequests;
+
+    // 429 重试次数
+    @Value("${es.bulk.max-retries:3}")
+    private int maxRetries;
+
+    // 429 重试起始间隔
+    @Value("${es.bulk.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    private ExecutorService senders;
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger seq = new AtomicInteger();
+        senders = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "es-bulk-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "es-bulk-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        senders.shutdown();
+    }
+
+    public Session open(String label, String index) {
+        return new Session(label, index);
+    }
+
+    /**
+     * 一次批量索引会话（非线程安全的生产方也可用：accept / flush 内部加锁）
+     */
+    public class Session implements Consumer<CommentDocument>, AutoCloseable {
+
+        private final String label;
+        private final String index;
+        private final long maxBytes = maxSizeMb * 1024 * 1024;
+        private final Semaphore inFlight = new Semaphore(concurrentRequests);
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ScheduledFuture<?> timer;
+        private final long startNanos = System.nanoTime();
+
+        private final AtomicLong indexed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong retried = new AtomicLong();
+        private final Queue<String> failures = new ConcurrentLinkedQueue<>();
+        // 本次会话写过的租户，uuid 缺失时整体失效
+        private final Set<String> tenants = ConcurrentHashMap.newKeySet();
+        private volatile boolean unknownTenant;
+        private final AtomicInteger failureDetails = new AtomicInteger();
+
+        private List<BulkOperation> buffer = new ArrayList<>();
+        private long bufferBytes;
+        private long lastFlushNanos = startNanos;
+        private BulkIndexResult result;
+
+        private Session(String label, String index) {
+            this.label = label;
+            this.index = index;
+            this.timer = flusher.scheduleWithFixedDelay(this::flushIfStale,
+                    flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void accept(CommentDocument doc) {
+            lucene.index(doc);
+            if (lucene.isStandalone()) {
+                indexed.incrementAndGet();
+                return;
+            }
+            touch(doc.getUuid());
+            doc.withSuggest();
+            add(BulkOperation.of(op -> op.index(idx -> idx.index(index).id(doc.getCid()).document(doc))),
+                    estimateBytes(doc));
+        }
+
+        /**
+         * 局部更新（只改给出的字段）；文档尚未建索引（404）时跳过，不计失败
+         * uuid 为文档所属租户，用于检索缓存失效
+         */
+        public void update(String cid, String uuid, Map<String, Object> partial) {
+            lucene.update(cid, uuid, partial);
+            if (lucene.isStandalone()) {
+                indexed.incrementAndGet();
+                return;
+            }
+            touch(uuid);
+            add(BulkOperation.of(op -> op.<CommentDocument, Map<String, Object>>update(u -> u
+                    .index(index).id(cid).action(a -> a.doc(partial)))), 256);
+        }
+
+        private void add(BulkOperation operation, long bytes) {
+            lock.lock();
+            try {
+                if (result != null) throw new IllegalStateException("批量索引会话已结束：" + label);
+                buffer.add(operation);
+                bufferBytes += bytes;
+                if (buffer.size() >= maxActions || bufferBytes >= maxBytes) flush();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void flush() {
+            lock.lock();
+            try {
+                if (buffer.isEmpty()) return;
+                List<BulkOperation> batch = buffer;
+                buffer = new ArrayList<>();
+                bufferBytes = 0;
+                lastFlushNanos = System.nanoTime();
+
+                inFlight.acquireUninterruptibly();
+                try {
+                    senders.execute(() -> {
+                        try {
+                            send(batch);
+                        } finally {
+                            invalidateCache();
+                            inFlight.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    inFlight.release();
+                    failBatch(batch.size(), "批量索引线程已关闭");
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // 定时器触发：生产方正在发送时跳过，下一轮再看
+        private void flushIfStale() {
+            if (!lock.tryLock()) return;
+            try {
+                if (result == null && System.nanoTime() - lastFlushNanos >= TimeUnit.MILLISECONDS.toNanos(flushIntervalMs)) {
+                    flush();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 发送缓冲区并等待所有在途请求结束（调用方据此记录断点）
+         */
+        public void sync() {
+            lock.lock();
+            try {
+                flush();
+                inFlight.acquireUninterruptibly(concurrentRequests);
+                inFlight.release(concurrentRequests);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public long getIndexed() {
+            return indexed.get();
+        }
+
+        public long getFailed() {
+            return failed.get();
+        }
+
+        /**
+         * 发送剩余文档并等待所有在途请求结束
+         */
+        public BulkIndexResult finish() {
+            lock.lock();
+            try {
+                if (result != null) return result;
+                timer.cancel(false);
+                sync();
+
+                result = new BulkIndexResult();
+                result.setIndexed(indexed.get());
+                result.setFailed(failed.get());
+                result.setSkipped(skipped.get());
+                result.setRequests(requests.get());
+                result.setRetried(retried.get());
+                result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                result.getFailures().addAll(failures);
+                if (result.getFailed() > 0) {
+                    log.warn("⚠️ [{}] ES 批量索引完成：{}，请求 {} 次，429 重试 {} 条",
+                            label, result.summary(), result.getRequests(), result.getRetried());
+                } else {
+                    log.info("📈 [{}] ES 批量索引完成：{}，请求 {} 次，429 重试 {} 条",
+                            label, result.summary(), result.getRequests(), result.getRetried());
+                }
+                return result;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            finish();
+        }
+
+        private void send(List<BulkOperation> ops) {
+            for (int attempt = 0; ; attempt++) {
+                requests.incrementAndGet();
+                List<BulkOperation> retry = new ArrayList<>();
+                try {
+                    List<BulkOperation> current = ops;
+                    BulkResponse response = client.bulk(b -> b.operations(current));
+                    List<BulkResponseItem> items = response.items();
+                    for (int i = 0; i < items.size(); i++) {
+                        BulkResponseItem item = items.get(i);
+                        if (item.error() == null) {
+                            indexed.incrementAndGet();
+                        } else if (item.status() == 404 && ops.get(i).isUpdate()) {
+                            skipped.incrementAndGet();
+                        } else if (item.status() == 429 && attempt < maxRetries) {
+                            retry.add(ops.get(i));
+                        } else {
+                            failed.incrementAndGet();
+                            addFailure(item.id() + " - " + item.error().reason());
+                        }
+                    }
+                } catch (ElasticsearchException e) {
+                    if (e.status() != 429 || attempt >= maxRetries) {
+                        failBatch(ops.size(), e.getMessage());
+                        return;
+                    }
+                    retry = ops;
+                } catch (IOException | RuntimeException e) {
+                    failBatch(ops.size(), e.getMessage());
+                    return;
+                }
+
+                if (retry.isEmpty()) return;
+                long delay = retryBackoffMs << attempt;
+                retried.addAndGet(retry.size());
+                log.warn("⚠️ [{}] ES 写入繁忙（429），{} 条 {} ms 后重试", label, retry.size(), delay);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failBatch(retry.size(), "重试等待被中断");
+                    return;
+                }
+                ops = retry;
+            }
+        }
+
+        private void touch(String uuid) {
+            if (uuid == null) unknownTenant = true;
+            else tenants.add(uuid);
+        }
+
+        private void invalidateCache() {
+            if (unknownTenant) searchCache.invalidateAll();
+            else searchCache.invalidateTenants(tenants);
+        }
+
+        private void failBatch(int size, String message) {
+            failed.addAndGet(size);
+            addFailure("批量请求失败（" + size + " 条）：" + message);
+            log.error("❌ [{}] ES 批量写入失败：{} 条 - {}", label, size, message);
+        }
+
+        private void addFailure(String message) {
+            if (failureDetails.getAndIncrement() < MAX_FAILURE_DETAILS) failures.add(message);
+        }
+    }
+
+    // 请求体积估算：中文按 UTF-8 3 字节，另加字段名 / 元数据行
+    private static long estimateBytes(CommentDocument doc) {
+        long chars = length(doc.getContent_clean()) + length(doc.getUsername());
+        return 3 * chars + 256;
+    }
+
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+}
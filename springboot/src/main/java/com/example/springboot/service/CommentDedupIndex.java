@@ -0,0 +1,98 @@
+package com.example.springboot.service;
+
+import com.example.springboot.dao.CommentDao;
+import com.example.springboot.entity.Comment;
+import com.example.springboot.utils.CommentFingerprint;
+import com.example.springboot.utils.LongHashSet;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单次入库的去重索引（同人 + 同内容 + 同清洗状态）
+ * - 数据库侧：去重阶段按批次走 content_hash 索引查一次，耗时与表大小无关
+ * - 本次上传内：写库阶段只把成功写入的指纹记入 LongHashSet，O(1) 判断；
+ *   某行写库失败时，之后出现的同一条评论仍会尝试写入，不会被当作重复丢掉
+ * filterNew 只在去重阶段线程调用，nextRound / markWritten 只在写库阶段线程调用
+ */
+public class CommentDedupIndex {
+
+    // IN 列表单次查询上限
+    private static final int LOOKUP_CHUNK = 1000;
+
+    private final CommentDao commentDao;
+    private final LongHashSet written = new LongHashSet(64 * 1024);
+    private final LongAdder skipped = new LongAdder();
+
+    /**
+     * 一轮写库：first 中每个指纹只出现一次，later 为同一指纹的后续行，等 first 写完再判断
+     */
+    public record Round(List<Comment> first, List<Comment> later) {
+    }
+
+    public CommentDedupIndex(CommentDao commentDao) {
+        this.commentDao = commentDao;
+    }
+
+    /**
+     * 过滤掉数据库中已存在的评论（保持原顺序）
+     */
+    public List<Comment> filterNew(List<Comment> batch) {
+        long[] hashes = new long[batch.size()];
+        Set<Long> distinct = new LinkedHashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Comment c = batch.get(i);
+            hashes[i] = CommentFingerprint.of(c.getUsername(), c.getContent(), c.getCleanStatus());
+            distinct.add(hashes[i]);
+        }
+
+        List<Long> lookup = new ArrayList<>(distinct);
+        Set<Long> existing = new HashSet<>();
+        for (int from = 0; from < lookup.size(); from += LOOKUP_CHUNK) {
+            existing.addAll(commentDao.selectExistingHashes(lookup.subList(from, Math.min(from + LOOKUP_CHUNK, lookup.size()))));
+        }
+
+        List<Comment> result = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (existing.contains(hashes[i])) {
+                skipped.increment();
+                continue;
+            }
+            result.add(batch.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * 从待写入的行中取出本轮：已成功写入过的指纹跳过，同一指纹只取第一次出现的行
+     */
+    public Round nextRound(List<Comment> pending) {
+        Set<Long> round = new HashSet<>();
+        List<Comment> first = new ArrayList<>(pending.size());
+        List<Comment> later = new ArrayList<>();
+        for (Comment c : pending) {
+            long hash = CommentFingerprint.of(c.getUsername(), c.getContent(), c.getCleanStatus());
+            if (written.contains(hash)) {
+                skipped.increment();
+            } else if (round.add(hash)) {
+                first.add(c);
+            } else {
+                later.add(c);
+            }
+        }
+        return new Round(first, later);
+    }
+
+    /**
+     * 记录成功写入的行
+     */
+    public void markWritten(Collection<Comment> comments) {
+        for (Comment c : comments) {
+            written.add(CommentFingerprint.of(c.getUsername(), c.getContent(), c.getCleanStatus()));
+        }
+    }
+
+    public long getSkipped() {
+        return skipped.sum();
+    }
+}
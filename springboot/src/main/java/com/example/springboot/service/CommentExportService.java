@@ -0,0 +1,251 @@
+package com.example.springboot.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.example.springboot.common.ResultCode;
+import com.example.springboot.dto.CommentSearchQuery;
+import com.example.springboot.entity.CommentDocument;
+import com.example.springboot.exception.CustomException;
+import com.example.springboot.utils.CsvStreamWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 检索结果导出（CSV / NDJSON / XLSX）
+ * - 与 /comment/search 同样的过滤条件，经 CommentSearchService.scan 用 point-in-time + search_after 遍历全部命中
+ * - 每批写完即丢弃，直接写入响应流；XLSX 用 SXSSFWorkbook，内存只保留滑动窗口内的行，其余落临时文件
+ * - 结束时日志记录行数与行/秒
+ */
+@Slf4j
+@Service
+public class CommentExportService {
+
+    private static final String[] HEADERS = {"评论ID", "项目ID", "用户名", "评论内容", "点赞数", "情感", "评论时间"};
+    // 单个工作表最多行数（XLSX 上限 1048576，含表头）
+    private static final int XLSX_SHEET_ROWS = 1_000_000;
+    private static final long PROGRESS_EVERY = 100_000;
+
+    @Autowired
+    private CommentSearchService commentSearchService;
+
+    // 每次从 ES 取的条数
+    @Value("${export.batch-size:2000}")
+    private int batchSize;
+
+    // XLSX 内存中保留的行数，超出的行写入临时文件
+    @Value("${export.xlsx-window:200}")
+    private int xlsxWindow;
+
+    public enum Format {
+        CSV("text/csv;charset=UTF-8", "csv"),
+        NDJSON("application/x-ndjson;charset=UTF-8", "ndjson"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        public final String contentType;
+        public final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public static Format of(String value) {
+            for (Format f : values()) {
+                if (f.extension.equalsIgnoreCase(value)) return f;
+            }
+            throw new CustomException(ResultCode.PARAM_ERROR.code, "不支持的导出格式：" + value + "（csv / ndjson / xlsx）");
+        }
+    }
+
+    /**
+     * 写出前的检查（响应开始写出后就无法再返回错误信息）
+     */
+    public void check() {
+        commentSearchService.requireSortable();
+    }
+
+    /**
+     * 导出全部命中到 out，返回导出行数；中途失败时 XLSX 不写出半个文件
+     */
+    public long export(CommentSearchQuery q, Format format, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        RowWriter writer = open(format, out);
+        long rows;
+        try {
+            writer.header();
+            Progress progress = new Progress(format, start);
+            rows = commentSearchService.scan(q, batchSize, docs -> {
+                for (CommentDocument doc : docs) writer.row(doc);
+                writer.flushBatch();
+                progress.add(docs.size());
+            });
+            writer.finish();
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            log.error("❌ 导出中断（{}）：{}", format.extension, e.getMessage());
+            throw e;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        log.info("📤 导出完成（{}）：{} 行，耗时 {} 秒，{} 行/秒",
+                format.extension, rows, String.format("%.1f", seconds), String.format("%.0f", rows / Math.max(seconds, 0.001)));
+        return rows;
+    }
+
+    private RowWriter open(Format format, OutputStream out) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvRowWriter(out);
+            case NDJSON -> new NdjsonRowWriter(out);
+            case XLSX -> new XlsxRowWriter(out, xlsxWindow);
+        };
+    }
+
+    // 进度日志：每 10 万行一次
+    private static class Progress {
+        private final Format format;
+        private final long start;
+        private long rows;
+
+        Progress(Format format, long start) {
+            this.format = format;
+            this.start = start;
+        }
+
+        void add(int n) {
+            long before = rows;
+            rows += n;
+            if (rows / PROGRESS_EVERY > before / PROGRESS_EVERY) {
+                double seconds = (System.nanoTime() - start) / 1e9;
+                log.info("📤 导出中（{}）：{} 行，{} 行/秒", format.extension, rows, String.format("%.0f", rows / Math.max(seconds, 0.001)));
+            }
+        }
+    }
+
+    private interface RowWriter {
+        void header() throws IOException;
+
+        void row(CommentDocument doc) throws IOException;
+
+        // 每批写完后调用，把已写内容推给客户端
+        void flushBatch() throws IOException;
+
+        void finish() throws IOException;
+
+        // 失败时释放资源，不再写出
+        default void abort() {
+        }
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+        private final CsvStreamWriter csv;
+
+        CsvRowWriter(OutputStream out) throws IOException {
+            this.csv = CsvStreamWriter.excelUtf8(out);
+        }
+
+        public void header() throws IOException {
+            csv.writeRow((Object[]) HEADERS);
+        }
+
+        public void row(CommentDocument d) throws IOException {
+            csv.writeRow(d.getCid(), d.getPid(), d.getUsername(), d.getContent_clean(),
+                    d.getLike_count(), d.getSentiment_label(), d.getComment_time());
+        }
+
+        public void flushBatch() throws IOException {
+            csv.flush();
+        }
+
+        public void finish() throws IOException {
+            csv.flush();
+        }
+    }
+
+    private static class NdjsonRowWriter implements RowWriter {
+        private final Writer writer;
+
+        NdjsonRowWriter(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        public void header() {
+        }
+
+        public void row(CommentDocument d) throws IOException {
+            writer.write(JSON.toJSONString(d));
+            writer.write('\n');
+        }
+
+        public void flushBatch() throws IOException {
+            writer.flush();
+        }
+
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    // XLSX 只能在最后一次性写出（zip 结构），中间的行落在 SXSSF 临时文件里
+    private static class XlsxRowWriter implements RowWriter {
+        private final OutputStream out;
+        private final SXSSFWorkbook workbook;
+        private Sheet sheet;
+        private int rowNum;
+
+        XlsxRowWriter(OutputStream out, int window) {
+            this.out = out;
+            this.workbook = new SXSSFWorkbook(window);
+            this.workbook.setCompressTempFiles(true);
+        }
+
+        public void header() {
+            sheet = workbook.createSheet("评论" + (workbook.getNumberOfSheets() + 1));
+            Row row = sheet.createRow(0);
+            for (int i = 0; i < HEADERS.length; i++) row.createCell(i).setCellValue(HEADERS[i]);
+            rowNum = 1;
+        }
+
+        public void row(CommentDocument d) {
+            if (rowNum > XLSX_SHEET_ROWS) header();
+            Row row = sheet.createRow(rowNum++);
+            text(row, 0, d.getCid());
+            text(row, 1, d.getPid());
+            text(row, 2, d.getUsername());
+            text(row, 3, d.getContent_clean());
+            if (d.getLike_count() != null) row.createCell(4).setCellValue(d.getLike_count());
+            if (d.getSentiment_label() != null) row.createCell(5).setCellValue(d.getSentiment_label());
+            text(row, 6, d.getComment_time());
+        }
+
+        private static void text(Row row, int col, String value) {
+            if (value != null) row.createCell(col).setCellValue(value);
+        }
+
+        public void flushBatch() {
+        }
+
+        public void finish() throws IOException {
+            try {
+                workbook.write(out);
+                out.flush();
+            } finally {
+                abort();
+            }
+        }
+
+        public void abort() {
+            // 删除 SXSSF 临时文件
+            workbook.dispose();
+            try {
+                workbook.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.springboot.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.mapping.Property;
+import co.elastic.clients.elasticsearch.indices.get_mapping.IndexMappingRecord;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import com.example.springboot.common.ResultCode;
+import com.example.springboot.dto.BulkIndexResult;
+import com.example.springboot.exception.CustomException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 评论索引版本管理
+ * - 实际数据在 comment_index_vN，读写统一走别名 comment_index
+ * - 映射 / 分词器由索引模板 es/comment_index_template.json 提供，启动时安装，新版本索引自动套用
+ * - 重建：新建 vN+1（不刷新、0 副本）→ 从 MySQL 全量灌入 → 恢复设置并 refresh → 原子切换别名 → 补齐重建期间的变更
+ * - 旧版本保留 retain-versions 个用于回滚，更早的删除
+ * 早期直接以 comment_index 命名的实体索引，在首次重建切换别名时一并删除
+ * 启动时 ES 不可达则定时重试检查，直到别名与映射状态确认为止
+ */
+@Slf4j
+@Service
+public class CommentIndexManager {
+
+    public static final String ALIAS = "comment_index";
+    private static final String VERSION_PREFIX = ALIAS + "_v";
+    private static final String TEMPLATE_NAME = "comment_index_template";
+    private static final String TEMPLATE_PATH = "es/comment_index_template.json";
+
+    @Autowired
+    private ElasticsearchClient client;
+
+    @Autowired
+    private DataSyncService dataSyncService;
+
+    @Autowired
+    private IncrementalSyncService incrementalSyncService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CommentSearchCache searchCache;
+
+    // 重建完成后恢复的副本数
+    @Value("${es.index.replicas:0}")
+    private String replicas;
+
+    // 重建完成后恢复的刷新间隔
+    @Value("${es.index.refresh-interval:1s}")
+    private String refreshInterval;
+
+    // 切换后保留的旧版本数（用于回滚）
+    @Value("${es.index.retain-versions:1}")
+    private int retainVersions;
+
+    // 启动检查失败后的重试间隔（毫秒）
+    @Value("${es.index.check-retry-ms:30000}")
+    private long checkRetryMs;
+
+    // search.engine=lucene 时不连 ES，不重试
+    @Value("${search.engine:elasticsearch}")
+    private String searchEngine;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile boolean templateMapped;
+    private volatile boolean suggestMapped;
+    // 别名与映射状态是否已确认；启动时 ES 不可达则为 false，由 retryEnsureAlias 补做
+    private volatile boolean aliasChecked;
+
+    /**
+     * 启动时安装模板并保证别名存在：全新环境直接建 v1 并挂别名
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureAlias() {
+        try {
+            installTemplate();
+            if (client.indices().existsAlias(e -> e.name(ALIAS)).value()) {
+                refreshMappingState();
+            } else if (client.indices().exists(e -> e.index(ALIAS)).value()) {
+                log.warn("⚠️ {} 仍是实体索引，调用 /es/rebuild 迁移为版本化索引 + 别名", ALIAS);
+            } else {
+                String index = VERSION_PREFIX + 1;
+                createIndex(index, replicas, refreshInterval);
+                swapAlias(index, List.of());
+                templateMapped = true;
+                suggestMapped = true;
+                log.info("✅ 已创建 {} 并挂载别名 {}", index, ALIAS);
+            }
+            aliasChecked = true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("⚠️ ES 别名检查失败（ES 未就绪？），{} ms 后重试：{}", checkRetryMs, e.getMessage());
+        }
+    }
+
+    /**
+     * 启动时检查失败的，ES 恢复后补做；否则 templateMapped / suggestMapped 会一直是 false
+     */
+    @Scheduled(initialDelayString = "${es.index.check-retry-ms:30000}", fixedDelayString = "${es.index.check-retry-ms:30000}")
+    public void retryEnsureAlias() {
+        if (aliasChecked || rebuilding.get() || "lucene".equalsIgnoreCase(searchEngine)) return;
+        ensureAlias();
+        if (aliasChecked) log.info("✅ ES 已就绪，别名与映射检查完成（模板映射={}，联想={}）", templateMapped, suggestMapped);
+    }
+
+    /**
+     * 重建：写入新版本索引，完成后原子切换别名；重建期间线上检索不受影响
+     */
+    public Map<String, Object> rebuild() throws IOException {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new CustomException(ResultCode.ERROR.code, "已有索引重建任务在运行");
+        }
+        try {
+            Map<Integer, String> versions = listVersions();
+            List<String> live = aliasTargets();
+            // 清理上次中断遗留的未上线版本
+            for (String index : versions.values()) {
+                if (!live.contains(index)) {
+                    int v = versionOf(index);
+                    if (live.stream().allMatch(l -> !isVersioned(l) || versionOf(l) < v)) {
+                        deleteIndex(index);
+                        log.info("🗑️ 删除未完成的重建索引：{}", index);
+                    }
+                }
+            }
+
+            int next = versions.keySet().stream().mapToInt(Integer::intValue).max().orElse(0) + 1;
+            String index = VERSION_PREFIX + next;
+            // 变更补齐的起点：留 1 分钟余量覆盖长事务
+            LocalDateTime since = jdbcTemplate.queryForObject("SELECT NOW(3) - INTERVAL 1 MINUTE", LocalDateTime.class);
+
+            // 模板可能已更新，新版本按最新映射创建
+            installTemplate();
+            createIndex(index, "0", "-1");
+            log.info("🏗️ 开始重建索引：{}（当前别名指向 {}）", index, live);
+            BulkIndexResult result = dataSyncService.streamAll(index, "rebuild " + index, 0, (lastId, rows) -> { });
+
+            client.indices().putSettings(p -> p.index(index)
+                    .settings(s -> s.numberOfReplicas(replicas).refreshInterval(t -> t.time(refreshInterval))));
+            client.indices().refresh(r -> r.index(index));
+
+            swapAlias(index, live);
+            templateMapped = true;
+            suggestMapped = true;
+            aliasChecked = true;
+            log.info("🔀 别名 {} 已切换：{} → {}", ALIAS, live, index);
+            // 重建期间经别名写入旧索引的变更补到新索引
+            incrementalSyncService.catchUp(since, index);
+            purgeOldVersions(next);
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("index", index);
+            summary.put("previous", live);
+            summary.put("result", result);
+            return summary;
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 回滚：别名切回上一个保留的版本
+     */
+    public String rollback() throws IOException {
+        List<String> live = aliasTargets();
+        int current = live.stream().filter(this::isVersioned).mapToInt(this::versionOf).max()
+                .orElseThrow(() -> new CustomException(ResultCode.ERROR.code, "别名未指向版本化索引，无法回滚"));
+        String previous = listVersions().entrySet().stream()
+                .filter(e -> e.getKey() < current)
+                .max(Map.Entry.comparingByKey())
+                .map(Map.Entry::getValue)
+                .orElseThrow(() -> new CustomException(ResultCode.DATA_NOT_FOUND.code, "没有可回滚的旧版本索引"));
+        swapAlias(previous, live);
+        refreshMappingState();
+        aliasChecked = true;
+        log.info("↩️ 别名 {} 已回滚：{} → {}", ALIAS, live, previous);
+        return previous;
+    }
+
+    /**
+     * 安装 / 更新索引模板（comment_index_v* 的映射与分词器），只影响之后新建的版本
+     */
+    public void installTemplate() throws IOException {
+        try (InputStream in = new ClassPathResource(TEMPLATE_PATH).getInputStream()) {
+            client.indices().putIndexTemplate(p -> p.name(TEMPLATE_NAME).withJson(in));
+        }
+    }
+
+    /**
+     * 线上版本是否已按模板映射（有 username.ngram 子字段）；旧的动态映射版本检索时退回通配符
+     */
+    public boolean isTemplateMapped() {
+        return templateMapped;
+    }
+
+    /**
+     * 线上版本是否有联想用的 completion 字段（username.suggest、keyword_suggest）
+     */
+    public boolean isSuggestMapped() {
+        return suggestMapped;
+    }
+
+    // 检查别名指向的索引映射，旧的动态映射提示重建
+    private void refreshMappingState() throws IOException {
+        boolean mapped = true;
+        boolean suggest = true;
+        for (Map.Entry<String, IndexMappingRecord> e : client.indices().getMapping(g -> g.index(ALIAS)).result().entrySet()) {
+            Map<String, Property> properties = e.getValue().mappings().properties();
+            Property time = properties.get("comment_time");
+            Property username = properties.get("username");
+            Property keywordSuggest = properties.get("keyword_suggest");
+            boolean ok = time != null && time.isDate()
+                    && username != null && username.isKeyword() && username.keyword().fields().containsKey("ngram");
+            boolean okSuggest = ok && username.keyword().fields().containsKey("suggest")
+                    && keywordSuggest != null && keywordSuggest.isCompletion();
+            if (!okSuggest) {
+                log.warn("⚠️ 索引 {} 的映射早于当前模板，调用 /es/rebuild 重建后生效", e.getKey());
+            }
+            mapped &= ok;
+            suggest &= okSuggest;
+        }
+        templateMapped = mapped;
+        suggestMapped = suggest;
+    }
+
+    public List<String> aliasTargets() throws IOException {
+        if (!client.indices().existsAlias(e -> e.name(ALIAS)).value()) return List.of();
+        return new ArrayList<>(client.indices().getAlias(g -> g.name(ALIAS)).result().keySet());
+    }
+
+    private void createIndex(String index, String replicaCount, String refresh) throws IOException {
+        client.indices().create(c -> c.index(index)
+                .settings(s -> s.numberOfReplicas(replicaCount).refreshInterval(t -> t.time(refresh))));
+    }
+
+    /**
+     * 一次 _aliases 请求内完成：挂新索引、摘旧索引、删除同名实体索引（原子生效）
+     */
+    private void swapAlias(String index, List<String> previous) throws IOException {
+        List<Action> actions = new ArrayList<>();
+        actions.add(Action.of(a -> a.add(add -> add.index(index).alias(ALIAS))));
+        for (String old : previous) {
+            if (!old.equals(index)) actions.add(Action.of(a -> a.remove(r -> r.index(old).alias(ALIAS))));
+        }
+        if (previous.isEmpty() && client.indices().exists(e -> e.index(ALIAS)).value()) {
+            actions.add(Action.of(a -> a.removeIndex(r -> r.index(ALIAS))));
+        }
+        client.indices().updateAliases(u -> u.actions(actions));
+        // 别名指向的数据整体变了，缓存的检索结果全部作废
+        searchCache.invalidateAll();
+    }
+
+    private void purgeOldVersions(int current) throws IOException {
+        List<Integer> older = listVersions().keySet().stream().filter(v -> v < current).sorted(Comparator.reverseOrder()).toList();
+        for (int i = retainVersions; i < older.size(); i++) {
+            String index = VERSION_PREFIX + older.get(i);
+            deleteIndex(index);
+            log.info("🗑️ 删除过期索引版本：{}", index);
+        }
+    }
+
+    private void deleteIndex(String index) throws IOException {
+        client.indices().delete(d -> d.index(index));
+    }
+
+    // 版本号 → 索引名
+    private Map<Integer, String> listVersions() throws IOException {
+        Map<Integer, String> versions = new TreeMap<>();
+        for (String index : client.indices().get(g -> g.index(VERSION_PREFIX + "*")).result().keySet()) {
+            if (isVersioned(index)) versions.put(versionOf(index), index);
+        }
+        return versions;
+    }
+
+    private boolean isVersioned(String index) {
+        return index.startsWith(VERSION_PREFIX) && index.substring(VERSION_PREFIX.length()).matches("\\d+");
+    }
+
+    private int versionOf(String index) {
+        return Integer.parseInt(index.substring(VERSION_PREFIX.length()));
+    }
+}
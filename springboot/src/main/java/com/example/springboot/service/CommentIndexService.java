@@ -1,27 +1,27 @@
 package com.example.springboot.service;
 
+import com.example.springboot.dto.BulkIndexResult;
 import com.example.springboot.entity.CommentDocument;
-import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch.core.IndexRequest;
-import co.elastic.clients.elasticsearch.core.IndexResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Map;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CommentIndexService {
 
     private final JdbcTemplate jdbcTemplate;
-    private final ElasticsearchClient client;
+    private final CommentBulkIndexer commentBulkIndexer;
 
     /**
-     * ✅ 根据项目 pid，把 MySQL 的 comment 数据同步到 Elasticsearch
+     * ✅ 根据项目 pid，把 MySQL 的 comment 数据同步到 Elasticsearch（_bulk 批量写入）
      */
-    public void indexCommentsByPid(String pid) {
+    public BulkIndexResult indexCommentsByPid(String pid) {
         String sql = """
            SELECT c.cid,
                   c.content AS content_clean,
@@ -37,50 +37,40 @@ public class CommentIndexService {
            WHERE c.pid = ?
            """;
 
-        List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql, pid);
-        System.out.println("🔍 SQL 返回行数：" + rows.size());
+        try (CommentBulkIndexer.Session session = commentBulkIndexer.open("reindex " + pid, CommentIndexManager.ALIAS)) {
+            // 流式结果集（只进 / 只读，fetchSize = Integer.MIN_VALUE 时 Connector/J 逐行读取），
+            // 逐行送入批量索引，不把整个项目的结果集缓冲在堆里
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(Integer.MIN_VALUE);
+                ps.setString(1, pid);
+                return ps;
+            }, rs -> {
+                CommentDocument doc = new CommentDocument();
+                doc.setCid(rs.getString("cid"));
+                doc.setContent_clean(rs.getString("content_clean"));
+                doc.setUsername(rs.getString("username"));
+                doc.setLike_count(rs.getObject("like_count", Integer.class));
+                // 未做情感分析的评论 LEFT JOIN 为 NULL，保持为空，不能当作中性（0）
+                doc.setSentiment_label(rs.getObject("sentiment_label", Integer.class));
 
-        for (Map<String, Object> row : rows) {
-            CommentDocument doc = new CommentDocument();
-            doc.setCid((String) row.get("cid"));
-            doc.setContent_clean((String) row.get("content_clean"));
-            doc.setUsername((String) row.get("username"));
-            doc.setLike_count((Integer) row.getOrDefault("like_count", 0));
-            doc.setSentiment_label((Integer) row.getOrDefault("sentiment_label", 0));
-
-            Object rawTime = row.get("comment_time");
-            if (rawTime != null) {
-                String timeStr = rawTime.toString().trim();
-                if (timeStr.contains(".")) {
-                    timeStr = timeStr.substring(0, timeStr.indexOf("."));
+                String timeStr = rs.getString("comment_time");
+                if (timeStr != null) {
+                    timeStr = timeStr.trim();
+                    if (timeStr.contains(".")) {
+                        timeStr = timeStr.substring(0, timeStr.indexOf("."));
+                    }
+                    doc.setComment_time(timeStr);
                 }
-                doc.setComment_time(timeStr);
-            }
-
-            doc.setPid((String) row.get("pid"));
-            doc.setUuid((String) row.get("uuid"));
 
-            try {
-                // ✅ 直接使用 Elasticsearch 官方客户端写入
-                IndexRequest<CommentDocument> request = IndexRequest.of(i -> i
-                        .index("comment_index")
-                        .id(doc.getCid())
-                        .document(doc)
-                );
-                IndexResponse response = client.index(request);
+                doc.setPid(rs.getString("pid"));
+                doc.setUuid(rs.getString("uuid"));
+                session.accept(doc);
+            });
 
-                if (response.result().name().equalsIgnoreCase("Created") ||
-                        response.result().name().equalsIgnoreCase("Updated")) {
-                    System.out.println("✅ 已写入 ES：" + doc.getCid() + " - " + doc.getContent_clean());
-                } else {
-                    System.err.println("⚠️ 未知结果：" + response.result());
-                }
-
-            } catch (Exception e) {
-                System.err.println("❌ 写入失败：" + doc.getCid() + " - " + e.getMessage());
-            }
+            BulkIndexResult result = session.finish();
+            log.info("✅ 已为项目 {} 建立索引：{}", pid, result.summary());
+            return result;
         }
-
-        System.out.println("✅ 已为项目 " + pid + " 建立索引：" + rows.size() + " 条记录");
     }
 }
@@ -0,0 +1,135 @@
+package com.example.springboot.service;
+
+import com.example.springboot.dto.CommentSearchQuery;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * /comment/search 检索结果缓存（Caffeine，W-TinyLFU 淘汰，按条数 + 写入后 TTL 限制）
+ * - key 为规范化后的检索条件 CommentSearchQuery，按租户 uuid 分组
+ * - 失效：ES 写入某租户的文档后记录该租户的失效时间，查询开始时间早于「失效时间 + 刷新延迟」的条目视为过期，
+ *   刷新延迟覆盖 ES refresh_interval，避免把刷新前的旧结果缓存下来；别名切换等整体变化时全部失效
+ * - 指标：cache.gets / cache.evictions / cache.size{cache=comment.search}（Caffeine 自带），
+ *   comment.search.cache.hit.ratio、comment.search.cache.stale（因失效被丢弃的条目数）
+ */
+@Slf4j
+@Service
+public class CommentSearchCache {
+
+    private static final String CACHE_NAME = "comment.search";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${es.search.cache.enabled:true}")
+    private boolean enabled;
+
+    // 最多缓存的检索结果数
+    @Value("${es.search.cache.maximum-size:10000}")
+    private long maximumSize;
+
+    // 写入后存活时间（秒），兜底没有经过本服务的 ES 变更
+    @Value("${es.search.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    // 写入后多久内查询到的结果仍可能是旧的（毫秒），应大于索引 refresh_interval
+    @Value("${es.search.cache.refresh-delay-ms:1500}")
+    private long refreshDelayMs;
+
+    private Cache<CommentSearchQuery, Entry> cache;
+    private final Map<String, Long> tenantInvalidatedAt = new ConcurrentHashMap<>();
+    private volatile long allInvalidatedAt = System.nanoTime();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    private Counter stale;
+
+    private record Entry(Map<String, Object> result, long startedAt) {
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("comment.search.cache.hit.ratio", this, c -> c.hitRatio())
+                .description("检索结果缓存命中率（过期丢弃的计为未命中）").register(meterRegistry);
+        stale = Counter.builder("comment.search.cache.stale")
+                .description("因 ES 写入失效而丢弃的缓存条目数").register(meterRegistry);
+    }
+
+    /**
+     * 命中且未失效直接返回，否则执行 loader 并缓存结果（loader 抛异常时不缓存）
+     */
+    public Map<String, Object> get(CommentSearchQuery key, Supplier<Map<String, Object>> loader) {
+        if (!enabled) return loader.get();
+        long startedAt = System.nanoTime();
+        lookups.incrementAndGet();
+
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            if (entry.startedAt() - staleBefore(key.uuid()) > 0) {
+                hits.incrementAndGet();
+                return entry.result();
+            }
+            cache.invalidate(key);
+            stale.increment();
+        }
+
+        Map<String, Object> result = loader.get();
+        cache.put(key, new Entry(result, startedAt));
+        return result;
+    }
+
+    /**
+     * 租户数据有变：之后才开始的查询结果才可缓存
+     */
+    public void invalidateTenants(Collection<String> uuids) {
+        long now = System.nanoTime();
+        for (String uuid : uuids) {
+            tenantInvalidatedAt.put(uuid, now);
+        }
+    }
+
+    /**
+     * 全部失效（全量同步、别名切换 / 回滚等）
+     */
+    public void invalidateAll() {
+        allInvalidatedAt = System.nanoTime();
+        cache.invalidateAll();
+        log.debug("🧹 检索结果缓存已全部失效");
+    }
+
+    // 早于此时刻开始的查询结果视为过期
+    private long staleBefore(String uuid) {
+        long at = allInvalidatedAt;
+        Long tenant = uuid != null ? tenantInvalidatedAt.get(uuid) : null;
+        if (tenant != null && tenant - at > 0) at = tenant;
+        return at + TimeUnit.MILLISECONDS.toNanos(refreshDelayMs);
+    }
+
+    private double hitRatio() {
+        long total = lookups.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.springboot.service;
+
+import com.example.springboot.dto.CommentSearchQuery;
+
+import java.util.Map;
+
+/**
+ * 评论检索引擎：ES（CommentSearchService）为主，嵌入式 Lucene（LuceneCommentSearchEngine）为备
+ * 返回结构与 /comment/search 一致：total + data（+ facets）
+ * 参数 / 条件错误抛 CustomException，引擎本身不可用抛其他运行时异常（由 CommentSearchRouter 切换）
+ */
+public interface CommentSearchEngine {
+
+    String name();
+
+    Map<String, Object> search(CommentSearchQuery q);
+}
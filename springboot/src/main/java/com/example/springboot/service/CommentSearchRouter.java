@@ -0,0 +1,127 @@
+package com.example.springboot.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import com.example.springboot.common.ResultCode;
+import com.example.springboot.dto.CommentSearchQuery;
+import com.example.springboot.exception.CustomException;
+import com.example.springboot.utils.CircuitBreaker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * /comment/search 的引擎选择与故障切换
+ * - 默认走 ES；ES 连续失败达到阈值后熔断，检索改由本地 Lucene 承接（单次失败也会当场用 Lucene 重查，不报错）
+ * - 切回：熔断冷却后由下一次检索或定时 ping 试探 ES，成功即切回；命中检索缓存的请求不计入熔断
+ * - Lucene 备用索引尚未回填存量数据时不切换（结果不完整），按 ES 不可用报错
+ * - search.engine=lucene 时只用 Lucene
+ * 返回结果带 engine 字段，前端可据此提示「ES 不可用，当前为本地检索」
+ */
+@Slf4j
+@Service
+public class CommentSearchRouter {
+
+    @Autowired
+    private CommentSearchService elasticsearch;
+
+    @Autowired
+    private LuceneCommentSearchEngine lucene;
+
+    @Autowired
+    private ElasticsearchClient client;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${search.failover.failure-threshold:3}")
+    private int failureThreshold;
+
+    @Value("${search.failover.open-seconds:30}")
+    private long openSeconds;
+
+    private CircuitBreaker breaker;
+    private volatile boolean degraded;
+
+    @PostConstruct
+    public void init() {
+        breaker = new CircuitBreaker(failureThreshold, TimeUnit.SECONDS.toMillis(openSeconds));
+        Gauge.builder("comment.search.failover", this, r -> r.degraded ? 1 : 0)
+                .description("检索是否已切到本地 Lucene：0=ES 1=Lucene").register(meterRegistry);
+    }
+
+    public Map<String, Object> search(CommentSearchQuery q) {
+        if (lucene.isStandalone()) return tag(lucene.search(q), lucene);
+
+        if (breaker.tryAcquire()) {
+            try {
+                AtomicBoolean esReached = new AtomicBoolean();
+                Map<String, Object> result = elasticsearch.search(q, esReached);
+                // 缓存命中没有访问 ES，不能据此关闭熔断或清零失败计数
+                if (esReached.get()) onEsSuccess();
+                else breaker.release();
+                return tag(result, elasticsearch);
+            } catch (CustomException e) {
+                // 参数 / 条件错误与 ES 是否可用无关
+                breaker.release();
+                throw e;
+            } catch (RuntimeException e) {
+                onEsFailure(e);
+                if (!lucene.isAvailable()) throw e;
+            }
+        } else if (!lucene.isAvailable()) {
+            throw new CustomException(ResultCode.SEARCH_ERROR.code, "ES 暂不可用，请稍后重试");
+        }
+        return tag(lucene.search(q), lucene);
+    }
+
+    /**
+     * 熔断期间定时 ping ES，恢复后不必等真实请求试探
+     */
+    @Scheduled(fixedDelayString = "${search.failover.probe-interval-ms:10000}")
+    public void probe() {
+        if (lucene.isStandalone() || breaker.getState() == CircuitBreaker.State.CLOSED) return;
+        if (!breaker.tryAcquire()) return;
+        try {
+            if (client.ping().value()) {
+                onEsSuccess();
+            } else {
+                onEsFailure(null);
+            }
+        } catch (Exception e) {
+            onEsFailure(e);
+        }
+    }
+
+    private void onEsSuccess() {
+        breaker.onSuccess();
+        if (degraded) {
+            degraded = false;
+            log.info("✅ ES 已恢复，检索切回 ES");
+        }
+    }
+
+    private void onEsFailure(Exception e) {
+        breaker.onFailure();
+        if (!degraded && breaker.getState() == CircuitBreaker.State.OPEN && lucene.isAvailable()) {
+            degraded = true;
+            log.warn("⚠️ ES 连续失败，检索切换到本地 Lucene（{} 秒后试探恢复）：{}", openSeconds, e != null ? e.getMessage() : "ping 失败");
+        }
+    }
+
+    // 缓存里的结果是共享的，复制后再加 engine
+    private static Map<String, Object> tag(Map<String, Object> result, CommentSearchEngine engine) {
+        Map<String, Object> tagged = new HashMap<>(result);
+        tagged.put("engine", engine.name());
+        return tagged;
+    }
+}
@@ -1,168 +1,577 @@
 package com.example.springboot.service;
 
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONException;
+import com.alibaba.fastjson2.JSONObject;
+import com.example.springboot.common.ResultCode;
+import com.example.springboot.dto.CommentSearchQuery;
 import com.example.springboot.entity.CommentDocument;
+import com.example.springboot.exception.CustomException;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.CalendarInterval;
+import co.elastic.clients.elasticsearch._types.aggregations.DateHistogramBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.HistogramBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.HighlighterEncoder;
+import co.elastic.clients.elasticsearch.core.search.HighlighterType;
 import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
+import co.elastic.clients.elasticsearch.core.search.TrackHits;
+import co.elastic.clients.json.JsonData;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import java.io.StringReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * 评论检索
+ * - 只有关键词参与打分（bool.must），uuid / pid / 用户名 / 情感 / 点赞 / 时间都是过滤条件（bool.filter），
+ *   不算分且可命中 ES 过滤器缓存
+ * - es.search.template-mode=true 时改用存储的搜索模板 comment_search（es/comment_search_template.mustache），
+ *   请求只传参数；模板不可用或索引仍是旧映射时回退到直接查询
+ * - 深翻页用游标模式 searchByCursor：point-in-time + search_after，不受 index.max_result_window 限制
+ * - page / size 检索结果经 CommentSearchCache 缓存，ES 写入对应租户后失效
+ * - 关键词高亮由 ES 生成片段（encoder=html，原文已转义），随结果以 highlight 返回，content_clean 保持原文
+ * - facets=true 时同一次请求带回情感 / 点赞 / 日趋势 / 活跃用户统计；size=0 只统计不取命中
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
-public class CommentSearchService {
+public class CommentSearchService implements CommentSearchEngine {
+
+    private static final String TEMPLATE_ID = "comment_search";
+    private static final String TEMPLATE_PATH = "es/comment_search_template.mustache";
+    // ES 默认 index.max_result_window，from + size 超过即报错
+    private static final int MAX_RESULT_WINDOW = 10000;
 
     private final ElasticsearchClient client;
-    private static final String INDEX_NAME = "comment_index";
-
-    public Map<String, Object> search(String keyword,
-                                      String username,
-                                      Integer sentiment,
-                                      String startTime,
-                                      String endTime,
-                                      Integer minLike,
-                                      Integer maxLike,
-                                      int page,
-                                      int size,
-                                      String uuid) {
-
-        if (size <= 0) size = 100;
-        if (page < 0) page = 0;
+    private final CommentIndexManager commentIndexManager;
+    private final CommentSearchCache searchCache;
+    private final LuceneCommentSearchEngine lucene;
+    // 查询走别名，重建索引切换版本时检索不中断
+    private static final String INDEX_NAME = CommentIndexManager.ALIAS;
 
-        try {
-            // 1) 组装 must 子句（使用 Map 构造原生 ES DSL，完全避开 Builder API）
-            List<Map<String, Object>> must = new ArrayList<>();
+    // 是否通过搜索模板检索
+    @Value("${es.search.template-mode:false}")
+    private boolean templateMode;
 
-            if (StringUtils.hasText(uuid)) {
-                must.add(Map.of("term", Map.of("uuid",uuid)));
-            }
-            if (StringUtils.hasText(keyword)) {
-                must.add(Map.of("match", Map.of("content_clean", keyword)));
-            }
-            if (StringUtils.hasText(username)) {
-                must.add(Map.of("wildcard", Map.of("username", "*" + username + "*")));
-            }
-            if (sentiment != null) {
-                must.add(Map.of("term", Map.of("sentiment_label", sentiment)));
-            }
-            // ✅ 点赞范围过滤（只有当用户明确输入了最小或最大点赞数时才生效）
-            if ((minLike != null && minLike > 0) || (maxLike != null && maxLike > 0)) {
-                Map<String, Object> range = new HashMap<>();
-                if (minLike != null && minLike > 0) {
-                    range.put("gte", minLike);
-                }
-                if (maxLike != null && maxLike > 0) {
-                    range.put("lte", maxLike);
-                }
+    // 游标分页的 point-in-time 保留时长（两次翻页之间的最长间隔）
+    @Value("${es.search.pit-keep-alive:2m}")
+    private String pitKeepAlive;
 
-                // ✅ 只有当 range 里真的有键时才加入 must
-                if (!range.isEmpty()) {
-                    must.add(Map.of("range", Map.of("like_count", range)));
-                }
-            }
+    // 高亮器：unified / fvh（需要词向量）/ plain
+    @Value("${es.search.highlight.type:unified}")
+    private String highlightType;
 
-            if (StringUtils.hasText(startTime) || StringUtils.hasText(endTime)) {
-                Map<String, Object> range = new HashMap<>();
-                if (StringUtils.hasText(startTime)) range.put("gte", startTime);
-                if (StringUtils.hasText(endTime)) range.put("lte", endTime);
-                must.add(Map.of("range", Map.of("comment_time", range)));
-            }
+    // 高亮片段字数
+    @Value("${es.search.highlight.fragment-size:100}")
+    private int fragmentSize;
+
+    // 每条最多片段数，0 表示整段高亮
+    @Value("${es.search.highlight.fragments:3}")
+    private int fragments;
+
+    @Value("${es.search.highlight.pre-tag:<em>}")
+    private String preTag;
+
+    @Value("${es.search.highlight.post-tag:</em>}")
+    private String postTag;
 
+    // 统计模式：点赞数直方图的桶宽
+    @Value("${es.search.facets.like-interval:100}")
+    private long likeInterval;
 
-            // ✅ 如果没有任何搜索条件，则添加 match_all，避免空查询
-            if (must.isEmpty()) {
-                must.add(Map.of("match_all", Map.of()));
+    // 统计模式：发言最多的用户取前几名
+    @Value("${es.search.facets.top-users:10}")
+    private int topUsers;
+
+    private volatile boolean templateInstalled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (templateMode) installTemplate();
+    }
+
+    /**
+     * 安装 / 更新搜索模板；失败时下次检索再试
+     */
+    public boolean installTemplate() {
+        try (InputStream in = new ClassPathResource(TEMPLATE_PATH).getInputStream()) {
+            String source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            client.putScript(p -> p.id(TEMPLATE_ID).script(s -> s.lang("mustache").source(source)));
+            templateInstalled = true;
+            log.info("✅ 已安装搜索模板 {}", TEMPLATE_ID);
+        } catch (IOException | RuntimeException e) {
+            log.warn("⚠️ 搜索模板安装失败（ES 未就绪？）：{}", e.getMessage());
+        }
+        return templateInstalled;
+    }
+
+    @Override
+    public String name() {
+        return "elasticsearch";
+    }
+
+    /**
+     * page / size 检索（可附带统计），结果经缓存
+     */
+    @Override
+    public Map<String, Object> search(CommentSearchQuery q) {
+        return search(q, new AtomicBoolean());
+    }
+
+    /**
+     * 同 search；结果确实由 ES 查出（不是缓存命中）时把 esReached 置为 true，路由据此判断 ES 是否可用
+     */
+    public Map<String, Object> search(CommentSearchQuery q, AtomicBoolean esReached) {
+        if (q.page() < 0 || q.size() < 0) {
+            throw new CustomException(ResultCode.PARAM_ERROR.code, "page / size 不能为负数");
+        }
+        if ((long) (q.page() + 1) * q.size() > MAX_RESULT_WINDOW) {
+            throw new CustomException(ResultCode.PARAM_ERROR.code, "翻页超过 " + MAX_RESULT_WINDOW + " 条，请使用游标分页（cursor）");
+        }
+        if (q.facets() && !commentIndexManager.isTemplateMapped()) {
+            // 旧的动态映射里 comment_time / username 是文本，不能做日期直方图和词项统计
+            throw new CustomException(ResultCode.SEARCH_ERROR.code, "当前索引映射不支持统计，请先重建索引");
+        }
+        TrackHits trackHits = parseTrackHits(q.trackTotalHits());
+        return searchCache.get(q, () -> {
+            Map<String, Object> result = doSearch(q, trackHits);
+            esReached.set(true);
+            return result;
+        });
+    }
+
+    private Map<String, Object> doSearch(CommentSearchQuery q, TrackHits trackHits) {
+        try {
+            HitsMetadata<CommentDocument> hits;
+            Map<String, Aggregate> aggregations = null;
+            // 模板里的用户名条件依赖 username.ngram，旧映射走直接查询；统计 / 自定义计数也走直接查询
+            if (templateMode && !q.facets() && trackHits == null && q.size() > 0
+                    && commentIndexManager.isTemplateMapped() && (templateInstalled || installTemplate())) {
+                Map<String, JsonData> params = templateParams(q);
+                log.debug("🔍 模板检索：{} {}", TEMPLATE_ID, params);
+                hits = client.searchTemplate(s -> s.index(INDEX_NAME).id(TEMPLATE_ID).params(params),
+                        CommentDocument.class).hits();
+            } else {
+                Query query = buildQuery(q);
+                log.debug("🔍 检索条件：{}", query);
+                SearchResponse<CommentDocument> response = client.search(s -> {
+                    s.index(INDEX_NAME).query(query).from(q.page() * q.size()).size(q.size());
+                    if (trackHits != null) s.trackTotalHits(trackHits);
+                    if (q.facets()) facets(s);
+                    // size=0 只要统计，不取命中也不高亮
+                    return q.size() > 0 ? highlight(s, q.keyword()) : s;
+                }, CommentDocument.class);
+                hits = response.hits();
+                aggregations = response.aggregations();
             }
 
-// ✅ 用 Map 直接组装查询体
-            Map<String, Object> body = new LinkedHashMap<>();
-            body.put("from", page * size);
-            body.put("size", size);
-            body.put("query", Map.of("bool", Map.of("must", must)));
-
-// ✅ 用 toJson(body) 把 Map 转成标准 JSON，再交给 ES 客户端执行
-            System.out.println("🔍 最终查询DSL：" + toJson(body));
-
-            SearchResponse<CommentDocument> response = client.search(s -> s
-                            .index(INDEX_NAME)
-                            .withJson(new StringReader(toJson(body))),
-                    CommentDocument.class);
-
-
-            // 3) 结果解析
-            List<Map<String, Object>> data = new ArrayList<>();
-            for (Hit<CommentDocument> hit : response.hits().hits()) {
-                CommentDocument doc = hit.source();
-                if (doc == null) continue;
-
-                Map<String, Object> map = new HashMap<>();
-                map.put("cid", doc.getCid());
-                map.put("pid", doc.getPid());
-                map.put("uuid", doc.getUuid());
-                map.put("username", doc.getUsername());
-                map.put("like_count", doc.getLike_count());
-                map.put("sentiment_label", doc.getSentiment_label());
-                map.put("comment_time", doc.getComment_time());
-
-                String text = doc.getContent_clean();
-                if (StringUtils.hasText(keyword) && StringUtils.hasText(text)) {
-                    String pattern = Pattern.quote(keyword);
-                    text = text.replaceAll(pattern, "<em style='color:red'>$0</em>");
+            Map<String, Object> result = new HashMap<>();
+            result.put("total", hits.total() != null ? hits.total().value() : 0);
+            result.put("data", toRows(hits));
+            if (q.facets()) result.put("facets", toFacets(aggregations));
+            return result;
+
+        } catch (ElasticsearchException e) {
+            // 4xx 是检索条件本身的问题（如时间格式不对），不算 ES 故障，不触发切换
+            if (e.status() < 500) throw new CustomException(ResultCode.SEARCH_ERROR.code, "检索条件有误：" + e.getMessage());
+            log.error("❌ ES 查询失败", e);
+            throw new RuntimeException("❌ ES 查询失败：" + e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.error("❌ ES 查询失败", e);
+            throw new RuntimeException("❌ ES 查询失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 游标分页：按 comment_time、cid 倒序，cursor 为空串表示第一页（page 忽略）
+     * 返回 cursor 供下一页传回，为 null 表示已到末尾；total 只在第一页统计，之后随游标带回
+     */
+    public Map<String, Object> searchByCursor(CommentSearchQuery q, String cursor) {
+        requireSortable();
+        if (q.size() > MAX_RESULT_WINDOW) {
+            throw new CustomException(ResultCode.PARAM_ERROR.code, "每页不能超过 " + MAX_RESULT_WINDOW + " 条");
+        }
+        int limit = q.size() > 0 ? q.size() : 100;
+        // 条件指纹：换了检索条件的旧游标不能接着用
+        int fingerprint = q.conditionHash();
+        Query query = buildQuery(q);
+
+        try {
+            SearchCursor after = StringUtils.hasText(cursor) ? SearchCursor.decode(cursor, fingerprint) : null;
+            String pit = after != null ? after.pit()
+                    : client.openPointInTime(o -> o.index(INDEX_NAME).keepAlive(k -> k.time(pitKeepAlive))).id();
+
+            SearchResponse<CommentDocument> response;
+            try {
+                response = client.search(s -> {
+                    sortByTime(s.pit(p -> p.id(pit).keepAlive(k -> k.time(pitKeepAlive))).query(query).size(limit));
+                    if (after != null) {
+                        s.searchAfter(List.of(FieldValue.of(after.time()), FieldValue.of(after.cid())))
+                                .trackTotalHits(t -> t.enabled(false));
+                    }
+                    return highlight(s, q.keyword());
+                }, CommentDocument.class);
+            } catch (ElasticsearchException e) {
+                // 本次新开的 point-in-time 还没有游标带出去，失败时当场释放
+                if (after == null) closePit(pit);
+                if (e.status() == 404) {
+                    throw new CustomException(ResultCode.SEARCH_ERROR.code, "游标已过期，请重新检索");
                 }
-                map.put("content_clean", text);
+                throw e;
+            } catch (IOException | RuntimeException e) {
+                if (after == null) closePit(pit);
+                throw e;
+            }
 
-                data.add(map);
+            HitsMetadata<CommentDocument> hits = response.hits();
+            long total = after != null ? after.total() : hits.total() != null ? hits.total().value() : 0;
+            String nextPit = response.pitId() != null ? response.pitId() : pit;
+            String next = null;
+            List<Hit<CommentDocument>> page = hits.hits();
+            if (page.size() < limit) {
+                // 最后一页，释放 point-in-time
+                closePit(nextPit);
+            } else {
+                List<FieldValue> sort = page.get(page.size() - 1).sort();
+                next = new SearchCursor(nextPit, sort.get(0).longValue(), sort.get(1).stringValue(), total, fingerprint).encode();
             }
 
             Map<String, Object> result = new HashMap<>();
-            result.put("total", response.hits().total() != null ? response.hits().total().value() : 0);
-            result.put("data", data);
+            result.put("total", total);
+            result.put("data", toRows(hits));
+            result.put("cursor", next);
             return result;
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (ElasticsearchException e) {
+            // 与 page / size 检索一致：4xx 是检索条件的问题，不算 ES 故障
+            if (e.status() < 500) throw new CustomException(ResultCode.SEARCH_ERROR.code, "检索条件有误：" + e.getMessage());
+            log.error("❌ ES 游标查询失败", e);
+            throw new RuntimeException("❌ ES 查询失败：" + e.getMessage());
+        } catch (IOException e) {
+            log.error("❌ ES 游标查询失败", e);
             throw new RuntimeException("❌ ES 查询失败：" + e.getMessage());
         }
     }
 
-    // ====== 极简 Map -> JSON 序列化（只覆盖本方法里用到的结构，够用即可）======
-    private static String toJson(Object obj) {
-        if (obj == null) return "null";
-        if (obj instanceof Number || obj instanceof Boolean) return String.valueOf(obj);
-        if (obj instanceof String) return "\"" + escape((String) obj) + "\"";
-        if (obj instanceof Map) {
-            StringBuilder sb = new StringBuilder();
-            sb.append("{");
-            boolean first = true;
-            for (Map.Entry<?, ?> e : ((Map<?, ?>) obj).entrySet()) {
-                if (!first) sb.append(",");
-                sb.append(toJson(String.valueOf(e.getKey()))).append(":").append(toJson(e.getValue()));
-                first = false;
+    /**
+     * 遍历全部命中（导出用）：point-in-time + search_after 每次取 batchSize 条交给 sink，内存只保留一批
+     * 返回遍历的条数；sink 抛出的异常会中止遍历，point-in-time 总会被释放
+     */
+    public long scan(CommentSearchQuery q, int batchSize, BatchSink sink) throws IOException {
+        requireSortable();
+        Query query = buildQuery(q);
+        String pit = client.openPointInTime(o -> o.index(INDEX_NAME).keepAlive(k -> k.time(pitKeepAlive))).id();
+        long scanned = 0;
+        try {
+            List<FieldValue> after = null;
+            while (true) {
+                String current = pit;
+                List<FieldValue> searchAfter = after;
+                SearchResponse<CommentDocument> response = client.search(s -> {
+                    sortByTime(s.pit(p -> p.id(current).keepAlive(k -> k.time(pitKeepAlive)))
+                            .query(query).size(batchSize).trackTotalHits(t -> t.enabled(false)));
+                    return searchAfter != null ? s.searchAfter(searchAfter) : s;
+                }, CommentDocument.class);
+                if (response.pitId() != null) pit = response.pitId();
+
+                List<Hit<CommentDocument>> hits = response.hits().hits();
+                if (hits.isEmpty()) break;
+                List<CommentDocument> docs = new ArrayList<>(hits.size());
+                for (Hit<CommentDocument> hit : hits) {
+                    if (hit.source() != null) docs.add(hit.source());
+                }
+                sink.accept(docs);
+                scanned += docs.size();
+                if (hits.size() < batchSize) break;
+                after = hits.get(hits.size() - 1).sort();
             }
-            sb.append("}");
-            return sb.toString();
-        }
-        if (obj instanceof Iterable) {
-            StringBuilder sb = new StringBuilder();
-            sb.append("[");
-            boolean first = true;
-            for (Object o : (Iterable<?>) obj) {
-                if (!first) sb.append(",");
-                sb.append(toJson(o));
-                first = false;
+        } finally {
+            closePit(pit);
+        }
+        return scanned;
+    }
+
+    // 释放 point-in-time；失败只记日志，到期后 ES 自动回收
+    private void closePit(String pit) {
+        try {
+            client.closePointInTime(c -> c.id(pit));
+        } catch (IOException | RuntimeException e) {
+            log.warn("⚠️ 释放 point-in-time 失败（到期后 ES 自动回收）：{}", e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    public interface BatchSink {
+        void accept(List<CommentDocument> docs) throws IOException;
+    }
+
+    /**
+     * 游标 / 导出按 comment_time 排序，旧的动态映射里 comment_time 是文本，不能排序
+     */
+    public void requireSortable() {
+        lucene.rejectIfStandalone("游标分页 / 导出");
+        if (!commentIndexManager.isTemplateMapped()) {
+            throw new CustomException(ResultCode.SEARCH_ERROR.code, "当前索引映射不支持游标分页 / 导出，请先重建索引");
+        }
+    }
+
+    // 稳定排序：comment_time 倒序，同一时刻按 cid
+    private static SearchRequest.Builder sortByTime(SearchRequest.Builder s) {
+        return s.sort(o -> o.field(f -> f.field("comment_time").order(SortOrder.Desc)))
+                .sort(o -> o.field(f -> f.field("cid").order(SortOrder.Desc)));
+    }
+
+    /**
+     * 有关键词时让 ES 对 content_clean 生成高亮片段；未命中的也返回开头一段，前端统一展示片段
+     */
+    private SearchRequest.Builder highlight(SearchRequest.Builder s, String keyword) {
+        if (!StringUtils.hasText(keyword)) return s;
+        return s.highlight(h -> h
+                .type(HighlighterType.of(t -> t.custom(highlightType)))
+                .encoder(HighlighterEncoder.Html)
+                .preTags(preTag)
+                .postTags(postTag)
+                .fields("content_clean", f -> f
+                        .fragmentSize(fragmentSize)
+                        .numberOfFragments(fragments)
+                        .noMatchSize(fragmentSize)));
+    }
+
+    /**
+     * 统计：情感分布、点赞数直方图、按天趋势（评论数 + 点赞和）、发言最多的用户，与命中同一次请求
+     */
+    private void facets(SearchRequest.Builder s) {
+        s.aggregations("sentiment", a -> a.terms(t -> t.field("sentiment_label").size(10)))
+                .aggregations("likes", a -> a.histogram(h -> h.field("like_count").interval((double) likeInterval).minDocCount(1)))
+                .aggregations("trend", a -> a
+                        .dateHistogram(d -> d.field("comment_time").calendarInterval(CalendarInterval.Day).format("yyyy-MM-dd"))
+                        .aggregations("likes", sub -> sub.sum(m -> m.field("like_count"))))
+                .aggregations("users", a -> a.terms(t -> t.field("username").size(topUsers)));
+    }
+
+    // 输出格式与 /visual/sentiment、/visual/trend 保持一致
+    private Map<String, Object> toFacets(Map<String, Aggregate> aggs) {
+        Map<String, Object> facets = new LinkedHashMap<>();
+
+        long pos = 0, neu = 0, neg = 0;
+        for (StringTermsBucket b : aggs.get("sentiment").sterms().buckets().array()) {
+            switch (b.key().stringValue()) {
+                case "1" -> pos += b.docCount();
+                case "0" -> neu += b.docCount();
+                case "-1" -> neg += b.docCount();
+                default -> { }
+            }
+        }
+        Map<String, Object> sentiment = new HashMap<>();
+        sentiment.put("positive", pos);
+        sentiment.put("neutral", neu);
+        sentiment.put("negative", neg);
+        facets.put("sentiment", sentiment);
+
+        List<Map<String, Object>> likes = new ArrayList<>();
+        for (HistogramBucket b : aggs.get("likes").histogram().buckets().array()) {
+            Map<String, Object> r = new HashMap<>();
+            r.put("from", (long) b.key());
+            r.put("to", (long) b.key() + likeInterval);
+            r.put("count", b.docCount());
+            likes.add(r);
+        }
+        facets.put("likes", likes);
+
+        List<Map<String, Object>> trend = new ArrayList<>();
+        for (DateHistogramBucket b : aggs.get("trend").dateHistogram().buckets().array()) {
+            Map<String, Object> r = new HashMap<>();
+            r.put("date", b.keyAsString());
+            r.put("comments", b.docCount());
+            r.put("likes", Math.round(b.aggregations().get("likes").sum().value()));
+            trend.add(r);
+        }
+        facets.put("trend", trend);
+
+        List<Map<String, Object>> users = new ArrayList<>();
+        for (StringTermsBucket b : aggs.get("users").sterms().buckets().array()) {
+            Map<String, Object> r = new HashMap<>();
+            r.put("username", b.key().stringValue());
+            r.put("count", b.docCount());
+            users.add(r);
+        }
+        facets.put("users", users);
+        return facets;
+    }
+
+    // track_total_hits：true / false / 精确统计上限
+    private static TrackHits parseTrackHits(String value) {
+        if (value == null) return null;
+        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            boolean enabled = Boolean.parseBoolean(value);
+            return TrackHits.of(t -> t.enabled(enabled));
+        }
+        try {
+            int count = Integer.parseInt(value);
+            return TrackHits.of(t -> t.count(count));
+        } catch (NumberFormatException e) {
+            throw new CustomException(ResultCode.PARAM_ERROR.code, "trackTotalHits 只能是 true / false / 整数");
+        }
+    }
+
+    private static List<Map<String, Object>> toRows(HitsMetadata<CommentDocument> hits) {
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (Hit<CommentDocument> hit : hits.hits()) {
+            CommentDocument doc = hit.source();
+            if (doc == null) continue;
+
+            Map<String, Object> map = new HashMap<>();
+            map.put("cid", doc.getCid());
+            map.put("pid", doc.getPid());
+            map.put("uuid", doc.getUuid());
+            map.put("username", doc.getUsername());
+            map.put("like_count", doc.getLike_count());
+            map.put("sentiment_label", doc.getSentiment_label());
+            map.put("comment_time", doc.getComment_time());
+            map.put("content_clean", doc.getContent_clean());
+
+            List<String> fragments = hit.highlight().get("content_clean");
+            if (fragments != null && !fragments.isEmpty()) {
+                map.put("highlight", fragments);
             }
-            sb.append("]");
-            return sb.toString();
+
+            data.add(map);
         }
-        // 兜底：转字符串
-        return "\"" + escape(String.valueOf(obj)) + "\"";
+        return data;
     }
 
-    private static String escape(String s) {
-        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    /**
+     * 组装查询：关键词打分，其余条件放 filter；没有任何条件时空 bool 即匹配全部
+     */
+    Query buildQuery(CommentSearchQuery q) {
+        BoolQuery.Builder bool = new BoolQuery.Builder();
+
+        if (q.keyword() != null) {
+            bool.must(m -> m.match(t -> t.field("content_clean").query(q.keyword())));
+        }
+        if (q.uuid() != null) {
+            bool.filter(f -> f.term(t -> t.field("uuid").value(q.uuid())));
+        }
+        if (q.pid() != null) {
+            bool.filter(f -> f.term(t -> t.field("pid").value(q.pid())));
+        }
+        if (q.username() != null) {
+            if (commentIndexManager.isTemplateMapped()) {
+                // 子串匹配：username.ngram 按 1~2 字切分，match_phrase 要求切分结果连续出现，等价于 *name*
+                bool.filter(f -> f.matchPhrase(t -> t.field("username.ngram").query(q.username())));
+            } else {
+                // 旧映射（无 ngram 子字段）退回通配符，重建索引后自动切换
+                bool.filter(f -> f.wildcard(t -> t.field("username").value("*" + q.username() + "*")));
+            }
+        }
+        if (q.sentiment() != null) {
+            bool.filter(f -> f.term(t -> t.field("sentiment_label").value(q.sentiment().longValue())));
+        }
+        if (q.likeFrom() != null || q.likeTo() != null) {
+            bool.filter(f -> f.range(r -> r.number(n -> {
+                n.field("like_count");
+                if (q.likeFrom() != null) n.gte(q.likeFrom().doubleValue());
+                if (q.likeTo() != null) n.lte(q.likeTo().doubleValue());
+                return n;
+            })));
+        }
+        if (q.startTime() != null || q.endTime() != null) {
+            bool.filter(f -> f.range(r -> r.date(d -> {
+                d.field("comment_time");
+                if (q.startTime() != null) d.gte(q.startTime());
+                if (q.endTime() != null) d.lte(q.endTime());
+                return d;
+            })));
+        }
+        return bool.build()._toQuery();
+    }
+
+    // 模板参数：未传的条件不放入，模板里对应的段落不渲染
+    private Map<String, JsonData> templateParams(CommentSearchQuery q) {
+        Map<String, JsonData> params = new LinkedHashMap<>();
+        params.put("from", JsonData.of(q.page() * q.size()));
+        params.put("size", JsonData.of(q.size()));
+        if (q.keyword() != null) {
+            params.put("keyword", JsonData.of(q.keyword()));
+            Map<String, Object> highlight = new LinkedHashMap<>();
+            highlight.put("type", highlightType);
+            highlight.put("pre_tag", preTag);
+            highlight.put("post_tag", postTag);
+            highlight.put("fragment_size", fragmentSize);
+            highlight.put("fragments", fragments);
+            params.put("highlight", JsonData.of(highlight));
+        }
+        if (q.username() != null) params.put("username", JsonData.of(q.username()));
+        if (q.uuid() != null) params.put("uuid", JsonData.of(q.uuid()));
+        if (q.pid() != null) params.put("pid", JsonData.of(q.pid()));
+        // mustache 段落对数字 0 的真假判断不可靠，情感标签按字符串传（keyword 字段，结果相同）
+        if (q.sentiment() != null) params.put("sentiment", JsonData.of(String.valueOf(q.sentiment())));
+        if (q.likeFrom() != null || q.likeTo() != null) {
+            Map<String, Object> like = new LinkedHashMap<>();
+            if (q.likeFrom() != null) like.put("gte", q.likeFrom());
+            if (q.likeTo() != null) like.put("lte", q.likeTo());
+            params.put("like", JsonData.of(like));
+        }
+        if (q.startTime() != null || q.endTime() != null) {
+            Map<String, Object> time = new LinkedHashMap<>();
+            if (q.startTime() != null) time.put("gte", q.startTime());
+            if (q.endTime() != null) time.put("lte", q.endTime());
+            params.put("time", JsonData.of(time));
+        }
+        return params;
+    }
+
+    /**
+     * 游标内容：point-in-time id + 上一页最后一条的排序值 + 首页统计的总数 + 条件指纹，Base64 后对前端不透明
+     */
+    record SearchCursor(String pit, long time, String cid, long total, int fingerprint) {
+
+        String encode() {
+            JSONObject json = new JSONObject();
+            json.put("p", pit);
+            json.put("a", JSONArray.of(time, cid));
+            json.put("t", total);
+            json.put("f", fingerprint);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json.toJSONString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        static SearchCursor decode(String token, int fingerprint) {
+            try {
+                JSONObject json = JSON.parseObject(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+                JSONArray after = json != null ? json.getJSONArray("a") : null;
+                if (after == null || after.size() != 2 || json.getString("p") == null || after.getString(1) == null) {
+                    throw new IllegalArgumentException("游标缺少字段");
+                }
+                SearchCursor cursor = new SearchCursor(json.getString("p"), after.getLongValue(0), after.getString(1),
+                        json.getLongValue("t"), json.getIntValue("f"));
+                if (cursor.fingerprint() != fingerprint) {
+                    throw new CustomException(ResultCode.PARAM_ERROR.code, "检索条件已变化，请从第一页重新检索");
+                }
+                return cursor;
+            } catch (IllegalArgumentException | JSONException e) {
+                throw new CustomException(ResultCode.PARAM_ERROR.code, "无效的游标");
+            }
+        }
     }
 }
@@ -0,0 +1,171 @@
+package com.example.springboot.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.CompletionContext;
+import co.elastic.clients.elasticsearch.core.search.CompletionSuggestOption;
+import co.elastic.clients.elasticsearch.core.search.Suggestion;
+import com.example.springboot.common.ResultCode;
+import com.example.springboot.exception.CustomException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 检索框联想（边输入边提示）
+ * - 关键词：keyword_suggest（写入时由 content_clean 抽取的关键词）；用户名：username.suggest
+ * - 两者都是 completion 字段（前缀 FST，常驻内存），按租户 uuid 做 category 上下文过滤
+ * - 前缀缓存：结果按（uuid, 类型, 前缀）缓存，每次都向 ES 取 max-size 条；
+ *   某个前缀的结果不足 max-size 条时说明已取全，之后更长的前缀直接在其中过滤，不再请求 ES，
+ *   逐字输入时只有前一两个字会真正查询
+ */
+@Slf4j
+@Service
+public class CommentSuggestService {
+
+    private static final String SUGGEST_NAME = "suggest";
+    private static final String CACHE_NAME = "comment.suggest";
+    // completion 字段默认 max_input_length
+    private static final int MAX_PREFIX_LENGTH = 50;
+
+    @Autowired
+    private ElasticsearchClient client;
+
+    @Autowired
+    private CommentIndexManager commentIndexManager;
+
+    @Autowired
+    private LuceneCommentSearchEngine lucene;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 每次向 ES 取的联想条数，也是单次返回的上限
+    @Value("${es.suggest.max-size:20}")
+    private int maxSize;
+
+    // 最多缓存的前缀数
+    @Value("${es.suggest.cache.maximum-size:20000}")
+    private long cacheSize;
+
+    // 前缀结果存活时间（秒），新评论最迟这么久后出现在联想里
+    @Value("${es.suggest.cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    private Cache<Key, Entry> cache;
+
+    public enum Type {
+        KEYWORD("keyword_suggest"),
+        USERNAME("username.suggest");
+
+        final String field;
+
+        Type(String field) {
+            this.field = field;
+        }
+
+        public static Type of(String value) {
+            for (Type t : values()) {
+                if (t.name().equalsIgnoreCase(value)) return t;
+            }
+            throw new CustomException(ResultCode.PARAM_ERROR.code, "不支持的联想类型：" + value + "（keyword / username）");
+        }
+    }
+
+    private record Key(String uuid, Type type, String prefix) {
+    }
+
+    // complete：结果不足 max-size 条，即该前缀下的联想已全部取回
+    private record Entry(List<String> words, boolean complete) {
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * 返回以 prefix 开头的前 size 条联想（不区分大小写）
+     */
+    public List<String> suggest(String uuid, Type type, String prefix, int size) throws IOException {
+        lucene.rejectIfStandalone("检索联想");
+        if (!commentIndexManager.isSuggestMapped()) {
+            throw new CustomException(ResultCode.SEARCH_ERROR.code, "当前索引映射不支持联想，请先重建索引");
+        }
+        String p = normalize(prefix);
+        int n = Math.max(1, Math.min(size, maxSize));
+        if (p.isEmpty()) return List.of();
+
+        Key key = new Key(uuid, type, p);
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            entry = fromShorterPrefix(key);
+            if (entry == null) entry = query(key);
+            // 只在新算出时写入，命中不续期
+            cache.put(key, entry);
+        }
+        return entry.words().size() <= n ? entry.words() : entry.words().subList(0, n);
+    }
+
+    // 更短前缀的结果已取全时，在其中过滤即可
+    private Entry fromShorterPrefix(Key key) {
+        for (int len = key.prefix().length() - 1; len > 0; len--) {
+            Entry shorter = cache.getIfPresent(new Key(key.uuid(), key.type(), key.prefix().substring(0, len)));
+            if (shorter == null) continue;
+            if (!shorter.complete()) return null;
+            List<String> words = new ArrayList<>();
+            for (String w : shorter.words()) {
+                if (normalize(w).startsWith(key.prefix())) words.add(w);
+            }
+            return new Entry(words, true);
+        }
+        return null;
+    }
+
+    private Entry query(Key key) throws IOException {
+        SearchResponse<Void> response = client.search(s -> s.index(CommentIndexManager.ALIAS)
+                .size(0)
+                .source(src -> src.fetch(false))
+                .suggest(sg -> sg.suggesters(SUGGEST_NAME, fs -> fs
+                        .prefix(key.prefix())
+                        .completion(c -> {
+                            c.field(key.type().field).size(maxSize).skipDuplicates(true);
+                            if (key.uuid() != null) {
+                                c.contexts("uuid", List.of(CompletionContext.of(cc -> cc.context(ctx -> ctx.category(key.uuid())))));
+                            }
+                            return c;
+                        }))), Void.class);
+
+        List<String> words = new ArrayList<>();
+        for (Suggestion<Void> suggestion : response.suggest().getOrDefault(SUGGEST_NAME, List.of())) {
+            for (CompletionSuggestOption<Void> option : suggestion.completion().options()) {
+                words.add(option.text());
+            }
+        }
+        log.debug("💡 联想 {} '{}'：{} 条，ES 耗时 {} ms", key.type(), key.prefix(), words.size(), response.took());
+        return new Entry(words, words.size() < maxSize);
+    }
+
+    private static String normalize(String s) {
+        if (s == null) return "";
+        s = s.trim().toLowerCase(Locale.ROOT);
+        return s.length() > MAX_PREFIX_LENGTH ? s.substring(0, MAX_PREFIX_LENGTH) : s;
+    }
+}
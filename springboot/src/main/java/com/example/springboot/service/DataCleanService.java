@@ -2,36 +2,46 @@ package com.example.springboot.service;
 
 import com.example.springboot.dao.CommentDao;
 import com.example.springboot.dao.ProjectDao;
+import com.example.springboot.dto.IngestJob;
 import com.example.springboot.entity.Comment;
 import com.example.springboot.entity.Project;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.springboot.utils.CommentCleaner;
+import com.example.springboot.utils.CommentTimeParser;
+import com.example.springboot.utils.CsvStreamReader;
+import com.example.springboot.utils.XlsxStreamReader;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
-import org.springframework.data.util.Pair;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.StringUtils;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class DataCleanService {
 
-    private final String PYTHON_API = "http://127.0.0.1:5001/clean";
+    // 是否解析 xlsx 的全部工作表（默认只读第一个）
+    @Value("${ingest.xlsx.all-sheets:false}")
+    private boolean xlsxAllSheets;
+
+    // 多工作表并行解析线程数
+    @Value("${ingest.xlsx.parallelism:2}")
+    private int xlsxParallelism;
 
     @Autowired
     private CommentDao commentDao;
@@ -46,246 +56,263 @@ public class DataCleanService {
     private DataSyncService dataSyncService;
 
     @Autowired
-    private CommentIndexService commentIndexService;
+    private PythonServiceClient pythonServiceClient;
+
+    @Autowired
+    private IngestPipelineService ingestPipelineService;
+
+    @Autowired
+    private CleanEngineService cleanEngineService;
+
+    /**
+     * 新建项目（任务排队时即写入，状态 init，项目列表中立即可见）
+     */
+    public Project createProject(String pid, String projectName, String optionsJson, String userUuid) {
+        Project project = new Project();
+        project.setPid(pid);
+        project.setProjectName(projectName);
+        project.setCleanType(optionsJson == null ? "" : optionsJson.replace("[", "").replace("]", ""));
+        project.setCreateTime(LocalDateTime.now());
+        project.setStatus("init");
+        project.setUuid(userUuid);
+        projectDao.insert(project);
+        return project;
+    }
 
     /**
-     * 上传、清洗、入库、项目管理
+     * 解析、入库、清洗、索引（在任务线程中执行，进度写入 job）
+     * @return 清洗结果 JSON（status / msg / file_url / preview）
      */
-    public String processData(MultipartFile file, String projectName, String optionsJson, String userUuid) {
-        String pid = UUID.randomUUID().toString();
-        LocalDateTime now = LocalDateTime.now();
+    public String processData(IngestJob job, File temp, Project project, String optionsJson) {
+        String pid = project.getPid();
+        IngestPipelineService.Pipeline pipeline = null;
 
         try {
-            // 0) 新建项目
-            if (!StringUtils.hasText(userUuid)) {
-                throw new IllegalArgumentException("user_uuid 不能为空");
-            }
-            Project project = new Project();
-            project.setPid(pid);
-            project.setProjectName(projectName);
-            project.setCleanType(optionsJson == null ? "" : optionsJson.replace("[", "").replace("]", ""));
-            project.setCreateTime(now);
-            project.setStartTime(now);
+            // 0) 项目进入运行状态
+            job.start();
             project.setStatus("running");
-            project.setUuid(userUuid);
-            projectDao.insert(project);
-
-            // 1) 本地临时文件
-            File temp = Files.createTempFile("upload_", "_" + file.getOriginalFilename()).toFile();
-            file.transferTo(temp);
+            project.setStartTime(job.getStartTime());
+            projectDao.updateStart(project);
             log.info("📄 临时文件：{}", temp.getAbsolutePath());
 
-            // 2) 解析文件 -> 原始评论入库（父->子）
-            List<Comment> originalList = parseFile(temp);
-            log.info("📊 文件解析得到记录：{}", originalList.size());
-
-            Pair<Integer, Integer> rawInsert = insertRawCommentsByOrder(pid, originalList);
-            log.info("✅ 原始数据入库完成：父={}，子={}，合计={}",
-                    rawInsert.getFirst(), rawInsert.getSecond(), rawInsert.getFirst() + rawInsert.getSecond());
-
-            // 3) 调 Flask 进行清洗
-            RestTemplate restTemplate = new RestTemplate();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("file", new FileSystemResource(temp));
-            body.add("project_name", projectName);
-            body.add("options", optionsJson);
-
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-            ResponseEntity<String> response = restTemplate.postForEntity(PYTHON_API, requestEntity, String.class);
-            String resBody = response.getBody();
-
-            JsonNode root = objectMapper.readTree(resBody);
-            if (root.has("status") && "success".equals(root.get("status").asText())) {
-                String outputPath = root.path("output_path").asText();
-                String fileUrl = "http://127.0.0.1:5001/" + outputPath.replace("\\", "/");
-                JsonNode previewArray = root.path("preview");
-
-                int cleanedInserted = 0;
-                if (previewArray != null && previewArray.isArray()) {
-                    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-                    for (JsonNode item : previewArray) {
-                        Comment c = new Comment();
-                        c.setPid(pid);
-                        c.setCid(UUID.randomUUID().toString());
-
-                        // 内容/用户名长度安全：实体是 255，表是 512，这里按 255 避免校验冲突
-                        String content = item.path("content_clean").asText(item.path("content").asText(""));
-                        if (content == null) content = "";
-                        if (content.length() > 255) content = content.substring(0, 255);
-                        c.setContent(content);
-
-                        String username = item.path("username").asText("");
-                        if (username == null) username = "";
-                        if (username.length() > 50) username = username.substring(0, 50);
-                        c.setUsername(username);
-
-                        // 时间
-                        String timeStr = item.path("comment_time").asText();
-                        try {
-                            c.setCommentTime(LocalDateTime.parse(timeStr, formatter));
-                        } catch (Exception e) {
-                            c.setCommentTime(LocalDateTime.now());
-                        }
-
-                        c.setLikeCount(item.path("like_count").asInt(0));
-                        c.setReplyCount(item.path("reply_count").asInt(0));
-                        c.setCommentType(item.path("comment_type").asInt(0));
-                        c.setCleanStatus("cleaned");
-
-                        // 去重：同人 + 同内容 + cleaned
-                        Boolean existsCleaned = commentDao.existsByUserContentStatus(c.getUsername(), c.getContent(), "cleaned");
-                        if (Boolean.TRUE.equals(existsCleaned)) {
-                            continue;
-                        }
-                        try {
-                            commentDao.insert(c);
-                            cleanedInserted++;
-                        } catch (Exception ex) {
-                            log.warn("⚠️ 清洗后入库失败：username={}, contentHash={}, err={}",
-                                    c.getUsername(), content.hashCode(), ex.getMessage());
-                        }
-                    }
+            // 1) 流式解析文件 -> 入库流水线（[Java 清洗] -> 去重 -> 写库 -> 建索引），与后续阶段并发执行
+            job.setStage("parse");
+            CommentCleaner cleaner = CleanEngineService.ENGINE_JAVA.equals(job.getEngine())
+                    ? cleanEngineService.createCleaner(optionsJson) : null;
+            pipeline = ingestPipelineService.open(job, cleaner);
+            IngestPipelineService.Pipeline rawSink = pipeline;
+            long parsed = parseFile(temp, c -> {
+                prepareRaw(c, pid);
+                rawSink.accept(c);
+            });
+            rawSink.flush();
+            log.info("📊 文件解析得到记录：{}", parsed);
+
+            long cleanedCount = 0;
+            String fileUrl = null;
+            if (cleaner == null) {
+                // 2) 调 Flask 进行清洗（流水线在后台继续写库 / 建索引）
+                job.checkCancelled();
+                job.setStage("clean");
+                MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+                body.add("file", new FileSystemResource(temp));
+                body.add("project_name", project.getProjectName());
+                body.add("options", optionsJson);
+
+                CleanResult cleanResult = pythonServiceClient.postMultipart("/clean", body,
+                        response -> readCleanResult(response.getBody()));
+
+                if (cleanResult == null || !"success".equals(cleanResult.status())) {
+                    // 原始数据照常入库
+                    pipeline.finish();
+                    updateProjectStatus(pid, "fail");
+                    String flaskMessage = cleanResult == null ? "" : String.valueOf(cleanResult.message());
+                    log.error("⚠️ Flask 返回异常：{}", flaskMessage);
+                    job.addError("Flask 返回异常：" + flaskMessage);
+                    job.finish("fail", "清洗服务返回异常");
+                    return objectMapper.createObjectNode()
+                            .put("status", cleanResult == null ? "error" : cleanResult.status())
+                            .put("message", flaskMessage)
+                            .toString();
                 }
 
-                log.info("✅ 清洗后数据入库完成：{}", cleanedInserted);
-
-                // 4) 项目状态 & ES 同步
-                project.setStatus("success");
-                project.setEndTime(LocalDateTime.now());
-                projectDao.updateByPrimaryKey(project);
-
-                commentIndexService.indexCommentsByPid(pid);
-
-                List<Comment> latestCleaned = commentDao.selectRecentCleaned(userUuid, 50);
-
-                ObjectNode successResponse = objectMapper.createObjectNode();
-                successResponse.put("status", "success");
-                successResponse.put("msg", "清洗完成，预览入库 " + cleanedInserted + " 条（CSV 全量已保存在 Flask 输出文件）");
-                successResponse.put("file_url", fileUrl);
-                successResponse.set("preview", objectMapper.valueToTree(latestCleaned));
-                return successResponse.toString();
-
-            } else {
-                updateProjectFail(pid);
-                log.error("⚠️ Flask 返回异常：{}", resBody);
-                return resBody;
+                job.checkCancelled();
+                job.setStage("cleaned");
+                fileUrl = pythonServiceClient.fileUrl(cleanResult.outputPath());
+                job.setFileUrl(fileUrl);
+
+                // 完整清洗结果 CSV 流式读取 -> 流水线（去重：同人 + 同内容 + cleaned）
+                IngestPipelineService.Pipeline cleanedSink = pipeline;
+                Long cleanedRows = pythonServiceClient.download(cleanResult.outputPath(),
+                        response -> parseCleanedCsv(response.getBody(), pid, cleanedSink));
+                cleanedCount = cleanedRows == null ? 0 : cleanedRows;
+                log.info("📊 清洗结果文件读取记录：{}", cleanedCount);
             }
 
+            // 3) 等待流水线写库 / 建索引完成
+            job.checkCancelled();
+            job.setStage("index");
+            pipeline.finish();
+            if (cleaner != null) cleanedCount = pipeline.getCleaned();
+            long inserted = pipeline.getParentInserted() + pipeline.getChildInserted();
+            log.info("✅ 数据入库完成：父={}，子={}，清洗结果={}，索引={}，去重跳过={}",
+                    pipeline.getParentInserted(), pipeline.getChildInserted(), cleanedCount,
+                    pipeline.getIndexed(), pipeline.getSkipped());
+
+            project.setStatus("success");
+            project.setEndTime(LocalDateTime.now());
+            projectDao.updateByPrimaryKey(project);
+
+            String msg = "清洗完成（" + job.getEngine() + "），共入库 " + inserted + " 条，其中清洗结果 " + cleanedCount + " 条";
+            job.finish("success", msg);
+
+            List<Comment> latestCleaned = commentDao.selectRecentCleaned(project.getUuid(), 50);
+
+            ObjectNode successResponse = objectMapper.createObjectNode();
+            successResponse.put("status", "success");
+            successResponse.put("msg", msg);
+            successResponse.put("file_url", fileUrl);
+            successResponse.set("preview", objectMapper.valueToTree(latestCleaned));
+            return successResponse.toString();
+
+        } catch (CancellationException e) {
+            log.warn("⏹️ 任务已取消：{}", pid);
+            updateProjectStatus(pid, "cancelled");
+            job.finish("cancelled", "任务已取消");
+            return objectMapper.createObjectNode()
+                    .put("status", "cancelled")
+                    .put("message", "任务已取消")
+                    .toString();
         } catch (Exception e) {
             log.error("❌ 处理失败：", e);
-            updateProjectFail(pid);
+            updateProjectStatus(pid, "fail");
+            String message = String.valueOf(e.getMessage()).replaceAll("[\\r\\n]+", " ");
+            job.addError(message);
+            job.finish("fail", "处理失败: " + message);
             return objectMapper.createObjectNode()
                     .put("status", "error")
-                    .put("message", "调用 Python 服务失败: " + e.getMessage().replaceAll("[\\r\\n]+", " "))
+                    .put("message", "调用 Python 服务失败: " + message)
                     .toString();
+        } finally {
+            if (pipeline != null) pipeline.close();
         }
     }
 
     /**
-     * 更新项目为失败状态
+     * 更新项目为结束状态（fail / cancelled）
      */
-    private void updateProjectFail(String pid) {
+    void updateProjectStatus(String pid, String status) {
         try {
-            Project failProject = new Project();
-            failProject.setPid(pid);
-            failProject.setStatus("fail");
-            failProject.setEndTime(LocalDateTime.now());
-            projectDao.updateStatus(failProject);
+            Project endProject = new Project();
+            endProject.setPid(pid);
+            endProject.setStatus(status);
+            endProject.setEndTime(LocalDateTime.now());
+            projectDao.updateStatus(endProject);
         } catch (Exception ex) {
             log.error("⚠️ 项目状态更新失败：{}", ex.getMessage(), ex);
         }
     }
 
     /**
-     * 原始评论分批入库（父 -> 子）
+     * Flask /clean 的响应摘要（preview 数组不再读取）
      */
-    private Pair<Integer, Integer> insertRawCommentsByOrder(String pid, List<Comment> originalList) {
-        int parentInserted = 0;
-        int childInserted = 0;
-
-        List<Comment> parents = new ArrayList<>();
-        List<Comment> children = new ArrayList<>();
-
-        for (Comment c : originalList) {
-            if (!StringUtils.hasText(c.getParentCid())) {
-                parents.add(c);
-            } else {
-                children.add(c);
-            }
-        }
+    private record CleanResult(String status, String message, String outputPath) {
+    }
 
-        // 父
-        for (Comment c : parents) {
-            c.setPid(pid);
-            c.setCleanStatus("raw");
-
-            String content = c.getContent() == null ? "" : c.getContent();
-            if (content.length() > 255) c.setContent(content.substring(0, 255));
-            String username = c.getUsername() == null ? "" : c.getUsername();
-            if (username.length() > 50) c.setUsername(username.substring(0, 50));
-
-            Boolean exists = commentDao.existsByUserContentStatus(c.getUsername(), c.getContent(), "raw");
-            if (Boolean.TRUE.equals(exists)) continue;
-
-            try {
-                commentDao.insert(c);
-                parentInserted++;
-            } catch (Exception e) {
-                log.warn("⚠️ 父评论入库失败：username={}, contentHash={}, err={}",
-                        c.getUsername(), content.hashCode(), e.getMessage());
+    /**
+     * 流式解析 Flask /clean 响应：只取顶层 status / message / output_path，
+     * preview 等其余字段用 skipChildren 跳过，不构建 JsonNode 树
+     */
+    private CleanResult readCleanResult(InputStream in) throws IOException {
+        String status = null;
+        String message = null;
+        String outputPath = null;
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("清洗服务响应不是 JSON 对象");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "status" -> status = parser.getValueAsString();
+                    case "message" -> message = parser.getValueAsString();
+                    case "output_path" -> outputPath = parser.getValueAsString();
+                    default -> parser.skipChildren();
+                }
             }
         }
+        return new CleanResult(status, message, outputPath == null ? "" : outputPath);
+    }
 
-        // 子（如果父不存在，则降级为无父）
-        for (Comment c : children) {
-            c.setPid(pid);
-            c.setCleanStatus("raw");
-
-            if (StringUtils.hasText(c.getParentCid())) {
-                Boolean parentOk = commentDao.existsByCid(c.getParentCid());
-                if (!Boolean.TRUE.equals(parentOk)) {
-                    c.setParentCid(null);
+    /**
+     * 流式读取 Flask 输出的完整清洗结果 CSV（utf-8-sig，按表头取列），逐行送入流水线
+     * cid / parent_cid 沿用清洗服务生成的编号，回复关系由流水线写库阶段解析
+     */
+    private long parseCleanedCsv(InputStream in, String pid, Consumer<Comment> sink) throws IOException {
+        Map<String, Integer> cols = new HashMap<>();
+        long[] count = {0};
+        try (CsvStreamReader reader = new CsvStreamReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            reader.read((arr, size, rowNum) -> {
+                if (rowNum == 0) {
+                    for (int i = 0; i < size; i++) cols.put(arr[i].trim(), i);
+                    return;
                 }
-            }
 
-            String content = c.getContent() == null ? "" : c.getContent();
-            if (content.length() > 255) c.setContent(content.substring(0, 255));
-            String username = c.getUsername() == null ? "" : c.getUsername();
-            if (username.length() > 50) c.setUsername(username.substring(0, 50));
+                Comment c = new Comment();
+                c.setPid(pid);
+                String cid = getCsvField(arr, size, cols, "cid");
+                c.setCid(cid.isEmpty() ? UUID.randomUUID().toString() : cid);
+                String parent = getCsvField(arr, size, cols, "parent_cid");
+                c.setParentCid(parent.isEmpty() ? null : parent);
+                c.setCommentType(parseIntSafe(getCsvField(arr, size, cols, "comment_type"), 0));
 
-            Boolean exists = commentDao.existsByUserContentStatus(c.getUsername(), c.getContent(), "raw");
-            if (Boolean.TRUE.equals(exists)) continue;
+                // 内容/用户名长度安全：实体是 255，表是 512，这里按 255 避免校验冲突
+                String content = getCsvField(arr, size, cols, "content");
+                if (content.length() > 255) content = content.substring(0, 255);
+                c.setContent(content);
 
-            try {
-                commentDao.insert(c);
-                childInserted++;
-            } catch (Exception e) {
-                log.warn("⚠️ 子评论入库失败：username={}, contentHash={}, err={}",
-                        c.getUsername(), content.hashCode(), e.getMessage());
-            }
+                String username = getCsvField(arr, size, cols, "username");
+                if (username.length() > 50) username = username.substring(0, 50);
+                c.setUsername(username);
+
+                c.setCommentTime(CommentTimeParser.parseOrNow(getCsvField(arr, size, cols, "comment_time")));
+                c.setLikeCount(parseIntSafe(getCsvField(arr, size, cols, "like_count"), 0));
+                c.setReplyCount(parseIntSafe(getCsvField(arr, size, cols, "reply_count"), 0));
+                c.setCleanStatus("cleaned");
+
+                sink.accept(c);
+                count[0]++;
+            });
         }
+        return count[0];
+    }
 
-        return Pair.of(parentInserted, childInserted);
+    private String getCsvField(String[] arr, int size, Map<String, Integer> cols, String name) {
+        Integer col = cols.get(name);
+        if (col == null || col >= size) return "";
+        return safeStr(arr[col]);
     }
 
-    // ---------------------- CSV 解析 ----------------------
-    private List<Comment> parseCsv(File file) throws Exception {
-        List<Comment> list = new ArrayList<>();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private void prepareRaw(Comment c, String pid) {
+        c.setPid(pid);
+        c.setCleanStatus("raw");
 
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), "utf-8"))) {
-            String header = br.readLine();
-            if (header == null) return list;
+        String content = c.getContent() == null ? "" : c.getContent();
+        if (content.length() > 255) content = content.substring(0, 255);
+        c.setContent(content);
+        String username = c.getUsername() == null ? "" : c.getUsername();
+        if (username.length() > 50) username = username.substring(0, 50);
+        c.setUsername(username);
+    }
 
-            String line;
-            while ((line = br.readLine()) != null) {
-                // 逗号分隔（兼容引号）
-                String[] arr = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1);
-                if (arr.length < 8) continue;
+    // ---------------------- CSV 解析（流式） ----------------------
+    private long parseCsv(File file, Consumer<Comment> sink) throws IOException {
+        long[] count = {0};
+        try (CsvStreamReader reader = CsvStreamReader.open(file)) {
+            reader.read((arr, size, rowNum) -> {
+                // 跳过表头 / 列数不足的行
+                if (rowNum == 0 || size < 8) return;
 
                 Comment c = new Comment();
                 c.setCid(safeStr(arr[0]));
@@ -294,129 +321,118 @@ public class DataCleanService {
 
                 c.setCommentType(parseIntSafe(arr[2], 0));
 
-                String content = safeStr(arr[3]).replace("\"", "").trim();
+                String content = safeStr(arr[3]);
                 if (content.length() > 255) content = content.substring(0, 255);
                 c.setContent(content);
 
-                try {
-                    c.setCommentTime(LocalDateTime.parse(safeStr(arr[4]), formatter));
-                } catch (Exception e) {
-                    c.setCommentTime(LocalDateTime.now());
-                }
+                c.setCommentTime(CommentTimeParser.parseOrNow(arr[4]));
 
-                String username = safeStr(arr[5]).replace("\"", "").trim();
+                String username = safeStr(arr[5]);
                 if (username.length() > 50) username = username.substring(0, 50);
                 c.setUsername(username);
 
                 c.setLikeCount(parseIntSafe(arr[6], 0));
                 c.setReplyCount(parseIntSafe(arr[7], 0));
 
-                list.add(c);
-            }
+                sink.accept(c);
+                count[0]++;
+            });
         }
-        log.info("✅ CSV解析完成，共 {} 条记录。", list.size());
-        return list;
+        log.info("✅ CSV解析完成，共 {} 条记录。", count[0]);
+        return count[0];
     }
 
-    // ---------------------- Excel 解析（无 setCellType，使用 DataFormatter） ----------------------
-    private List<Comment> parseExcel(File file) throws Exception {
-        List<Comment> list = new ArrayList<>();
-        DataFormatter formatter = new DataFormatter(); // 关键：把 Cell 渲染为文本
-        try (FileInputStream fis = new FileInputStream(file);
-             Workbook workbook = new XSSFWorkbook(fis)) {
-
-            Sheet sheet = workbook.getSheetAt(0);
-            if (sheet == null) return list;
-
-            Row header = sheet.getRow(0);
-            if (header == null) return list;
-
-            // 自动识别列
-            Map<String, Integer> colIndex = new HashMap<>();
-            for (int i = 0; i < header.getLastCellNum(); i++) {
-                String title = formatter.formatCellValue(header.getCell(i)).trim();
-                if (title.contains("评论人") && !title.contains("二级")) colIndex.put("username", i);
-                else if (title.contains("评论时间") && !title.contains("二级")) colIndex.put("comment_time", i);
-                else if (title.contains("评论内容") && !title.contains("二级")) colIndex.put("content", i);
-                else if (title.contains("点赞") && !title.contains("二级")) colIndex.put("like_count", i);
-                else if (title.contains("二级评论人")) colIndex.put("reply_username", i);
-                else if (title.contains("二级评论时间")) colIndex.put("reply_time", i);
-                else if (title.contains("二级评论内容")) colIndex.put("reply_content", i);
-                else if (title.contains("二级评论点赞")) colIndex.put("reply_like", i);
+    // ---------------------- Excel 解析（SAX 事件模型，不构建 Workbook DOM） ----------------------
+    private long parseExcel(File file, Consumer<Comment> sink) throws Exception {
+        // 每个工作表第一行为表头；多工作表并行解析时各自识别列
+        Map<Integer, Map<String, Integer>> sheetColumns = new ConcurrentHashMap<>();
+        LongAdder count = new LongAdder();
+
+        XlsxStreamReader.read(file, xlsxAllSheets, xlsxParallelism, (sheetIndex, rowNum, cells, size) -> {
+            Map<String, Integer> colIndex = sheetColumns.get(sheetIndex);
+            if (colIndex == null) {
+                colIndex = detectExcelColumns(cells, size);
+                sheetColumns.put(sheetIndex, colIndex);
+                log.info("🧩 Excel字段映射（sheet {}）：{}", sheetIndex, colIndex);
+                return;
             }
-            log.info("🧩 Excel字段映射：{}", colIndex);
-
-            DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-            // 遍历数据
-            for (int r = 1; r <= sheet.getLastRowNum(); r++) {
-                Row row = sheet.getRow(r);
-                if (row == null) continue;
-
-                // 一级评论
-                String topCid = UUID.randomUUID().toString();
-                Comment top = new Comment();
-                top.setCid(topCid);
-                top.setParentCid(null);
-                top.setCommentType(0);
 
-                String content = getCellString(row, colIndex.get("content"), formatter);
-                if (content.length() > 255) content = content.substring(0, 255);
-                top.setContent(content);
+            // 一级评论
+            String topCid = UUID.randomUUID().toString();
+            Comment top = new Comment();
+            top.setCid(topCid);
+            top.setParentCid(null);
+            top.setCommentType(0);
+
+            String content = getCellString(cells, size, colIndex.get("content"));
+            if (content.length() > 255) content = content.substring(0, 255);
+            top.setContent(content);
+
+            String username = getCellString(cells, size, colIndex.get("username"));
+            if (username.length() > 50) username = username.substring(0, 50);
+            top.setUsername(username);
+
+            top.setLikeCount(parseIntSafe(getCellString(cells, size, colIndex.get("like_count")), 0));
+            top.setReplyCount(0);
+            top.setCommentTime(CommentTimeParser.parseOrNow(getCellString(cells, size, colIndex.get("comment_time"))));
+
+            // 二级评论（存在时）
+            Comment sub = null;
+            String replyUser = getCellString(cells, size, colIndex.get("reply_username"));
+            String replyContent = getCellString(cells, size, colIndex.get("reply_content"));
+            if (!replyUser.isEmpty() || !replyContent.isEmpty()) {
+                sub = new Comment();
+                sub.setCid(UUID.randomUUID().toString());
+                sub.setParentCid(topCid);
+                sub.setCommentType(1);
+
+                if (replyContent.length() > 255) replyContent = replyContent.substring(0, 255);
+                sub.setContent(replyContent);
+
+                if (replyUser.length() > 50) replyUser = replyUser.substring(0, 50);
+                sub.setUsername(replyUser);
+
+                sub.setLikeCount(parseIntSafe(getCellString(cells, size, colIndex.get("reply_like")), 0));
+                sub.setReplyCount(0);
+                sub.setCommentTime(CommentTimeParser.parseOrNow(getCellString(cells, size, colIndex.get("reply_time"))));
+            }
 
-                String username = getCellString(row, colIndex.get("username"), formatter);
-                if (username.length() > 50) username = username.substring(0, 50);
-                top.setUsername(username);
+            // 父子成对推送，保证并行解析时父评论仍先于回复入库
+            synchronized (sink) {
+                sink.accept(top);
+                if (sub != null) sink.accept(sub);
+            }
+            count.add(sub != null ? 2 : 1);
+        });
 
-                top.setLikeCount(parseIntSafe(getCellString(row, colIndex.get("like_count"), formatter), 0));
-                top.setReplyCount(0);
+        log.info("✅ Excel解析完成，共 {} 条记录。", count.sum());
+        return count.sum();
+    }
 
-                String timeStr = getCellString(row, colIndex.get("comment_time"), formatter);
-                try {
-                    top.setCommentTime(LocalDateTime.parse(timeStr, dtf));
-                } catch (Exception e) {
-                    top.setCommentTime(LocalDateTime.now());
-                }
-                list.add(top);
-
-                // 二级评论（存在时）
-                String replyUser = getCellString(row, colIndex.get("reply_username"), formatter);
-                String replyContent = getCellString(row, colIndex.get("reply_content"), formatter);
-                if (!replyUser.isEmpty() || !replyContent.isEmpty()) {
-                    Comment sub = new Comment();
-                    sub.setCid(UUID.randomUUID().toString());
-                    sub.setParentCid(topCid);
-                    sub.setCommentType(1);
-
-                    if (replyContent.length() > 255) replyContent = replyContent.substring(0, 255);
-                    sub.setContent(replyContent);
-
-                    if (replyUser.length() > 50) replyUser = replyUser.substring(0, 50);
-                    sub.setUsername(replyUser);
-
-                    sub.setLikeCount(parseIntSafe(getCellString(row, colIndex.get("reply_like"), formatter), 0));
-                    sub.setReplyCount(0);
-
-                    String replyTime = getCellString(row, colIndex.get("reply_time"), formatter);
-                    try {
-                        sub.setCommentTime(LocalDateTime.parse(replyTime, dtf));
-                    } catch (Exception e) {
-                        sub.setCommentTime(LocalDateTime.now());
-                    }
-                    list.add(sub);
-                }
-            }
+    /**
+     * 按表头文字自动识别列（评论人 / 评论时间 / 二级评论内容 ...）
+     */
+    private Map<String, Integer> detectExcelColumns(String[] header, int size) {
+        Map<String, Integer> colIndex = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            String title = header[i] == null ? "" : header[i].trim();
+            if (title.contains("评论人") && !title.contains("二级")) colIndex.put("username", i);
+            else if (title.contains("评论时间") && !title.contains("二级")) colIndex.put("comment_time", i);
+            else if (title.contains("评论内容") && !title.contains("二级")) colIndex.put("content", i);
+            else if (title.contains("点赞") && !title.contains("二级")) colIndex.put("like_count", i);
+            else if (title.contains("二级评论人")) colIndex.put("reply_username", i);
+            else if (title.contains("二级评论时间")) colIndex.put("reply_time", i);
+            else if (title.contains("二级评论内容")) colIndex.put("reply_content", i);
+            else if (title.contains("二级评论点赞")) colIndex.put("reply_like", i);
         }
-        log.info("✅ Excel解析完成，共 {} 条记录。", list.size());
-        return list;
+        return colIndex;
     }
 
-    // --------- 工具函数（不再使用 setCellType）---------
-    private String getCellString(Row row, Integer col, DataFormatter fmt) {
-        if (row == null || col == null) return "";
-        Cell cell = row.getCell(col);
-        if (cell == null) return "";
-        return fmt.formatCellValue(cell).trim();
+    // --------- 工具函数 ---------
+    private String getCellString(String[] cells, int size, Integer col) {
+        if (col == null || col >= size) return "";
+        String v = cells[col];
+        return v == null ? "" : v.trim();
     }
 
     private String safeStr(String s) {
@@ -426,23 +442,26 @@ public class DataCleanService {
     private int parseIntSafe(String s, int def) {
         try {
             if (!StringUtils.hasText(s)) return def;
-            return Integer.parseInt(s.trim());
+            String t = s.trim();
+            // pandas 导出含空值的整数列时会写成 12.0
+            if (t.endsWith(".0")) t = t.substring(0, t.length() - 2);
+            return Integer.parseInt(t);
         } catch (Exception e) {
             return def;
         }
     }
 
     /**
-     * 自动识别文件类型（Excel / CSV）
+     * 自动识别文件类型（Excel / CSV），逐条推送给 sink，返回解析条数
      */
-    private List<Comment> parseFile(File file) throws Exception {
+    private long parseFile(File file, Consumer<Comment> sink) throws Exception {
         String name = file.getName().toLowerCase();
         if (name.endsWith(".xlsx") || name.endsWith(".xls")) {
             log.info("📘 正在使用 Excel 解析文件: {}", name);
-            return parseExcel(file);
+            return parseExcel(file, sink);
         } else if (name.endsWith(".csv")) {
             log.info("📗 正在使用 CSV 解析文件: {}", name);
-            return parseCsv(file);
+            return parseCsv(file, sink);
         } else {
             throw new IllegalArgumentException("❌ 不支持的文件类型: " + name);
         }
@@ -2,98 +2,116 @@ package com.example.springboot.service;
 
 import com.example.springboot.dao.CommentDao;
 import com.example.springboot.dao.SentimentDao;
+import com.example.springboot.dao.SyncCheckpointDao;
+import com.example.springboot.dto.BulkIndexResult;
 import com.example.springboot.entity.Comment;
 import com.example.springboot.entity.CommentDocument;
-import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch.core.IndexRequest;
-import co.elastic.clients.elasticsearch.core.IndexResponse;
+import com.example.springboot.entity.Sentiment;
+import com.example.springboot.entity.SyncCheckpoint;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class DataSyncService {
 
     private final CommentDao commentDao;
     private final SentimentDao sentimentDao;
-    private final ElasticsearchClient client;
+    private final CommentBulkIndexer commentBulkIndexer;
     private final JdbcTemplate jdbcTemplate;  // ✅ 用于查询 project.uuid
+    private final PythonServiceClient pythonServiceClient;
+    private final SyncCheckpointDao syncCheckpointDao;
+    private final LuceneCommentSearchEngine lucene;
 
-    private static final String INDEX_NAME = "comment_index";
+    private static final String INDEX_NAME = CommentIndexManager.ALIAS;
+    private static final String FULL_SYNC = "full";
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // 按项目同步时每次批量查询情感标签的 cid 数
+    private static final int ENRICH_BATCH = 1000;
+
+    // 全量同步每块读取条数（按主键游标分页）
+    @Value("${es.sync.chunk-size:5000}")
+    private int syncChunkSize;
 
     /**
      * ✅ 全量同步 MySQL 评论到 Elasticsearch
+     * 按主键游标分块读取 → 转换 → 批量索引，每块完成后记录断点；
+     * resume=true 且上次未跑完时从断点继续，否则从头开始
      */
-    public String syncAllCommentsToES() {
-        List<Comment> comments = commentDao.selectAll();
-        if (comments == null || comments.isEmpty()) {
+    public String syncAllCommentsToES(boolean resume) {
+        long lastId = 0;
+        long read = 0;
+        SyncCheckpoint checkpoint = resume ? syncCheckpointDao.selectByPrimaryKey(FULL_SYNC) : null;
+        if (checkpoint != null && "running".equals(checkpoint.getStatus())) {
+            lastId = checkpoint.getLastId();
+            read = checkpoint.getSynced();
+            log.info("🔁 全量同步从断点继续：id > {}，此前已读取 {} 条", lastId, read);
+        }
+        syncCheckpointDao.save(FULL_SYNC, lastId, read, "running");
+
+        long[] progress = {lastId, read};
+        BulkIndexResult result = streamAll(INDEX_NAME, "sync all", lastId, (chunkLastId, rows) -> {
+            progress[0] = chunkLastId;
+            progress[1] += rows;
+            syncCheckpointDao.save(FULL_SYNC, progress[0], progress[1], "running");
+            log.info("🔄 全量同步进度：已读取 {} 条，id ≤ {}", progress[1], progress[0]);
+        });
+        syncCheckpointDao.save(FULL_SYNC, progress[0], progress[1], "done");
+
+        if (progress[1] == 0) {
             return "⚠️ 数据库中暂无评论数据。";
         }
-        System.out.println("✅ MySQL 读取评论数量：" + comments.size());
+        return "✅ 已成功导入 " + result.getIndexed() + " / " + progress[1] + " 条评论到 Elasticsearch！"
+                + result.summary() + failureHint(result);
+    }
 
+    /**
+     * ✅ 按主键游标把 id > afterId 的评论全部写入指定索引
+     * 每块写完（在途请求全部返回）后回调 onChunk(本块最大 id, 本块条数)，调用方据此记录断点
+     * 从头跑完（afterId = 0）即覆盖了全部存量数据，标记 Lucene 索引回填完成
+     */
+    BulkIndexResult streamAll(String index, String label, long afterId, BiConsumer<Long, Integer> onChunk) {
         // ✅ 一次性查出所有 pid→uuid 映射
         Map<String, String> pidToUuid = getProjectUuidMap();
 
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        long lastId = afterId;
+        try (CommentBulkIndexer.Session session = commentBulkIndexer.open(label, index)) {
+            while (true) {
+                List<Comment> chunk = commentDao.selectAfterId(lastId, syncChunkSize);
+                if (chunk.isEmpty()) break;
 
-        List<CommentDocument> documents = comments.stream().map(c -> {
-            CommentDocument doc = new CommentDocument();
-            doc.setCid(c.getCid());
-            doc.setContent_clean(c.getContent());
-            doc.setUsername(c.getUsername());
-            doc.setLike_count(c.getLikeCount());
-            Integer label = sentimentDao.findLabelByCid(c.getCid());
-            doc.setSentiment_label(label != null ? label : 0);
-            doc.setComment_time(c.getCommentTime() != null ? c.getCommentTime().format(formatter) : null);
-            doc.setPid(c.getPid());
-            doc.setUuid(pidToUuid.getOrDefault(c.getPid(), "unknown"));
-            return doc;
-        }).collect(Collectors.toList());
-
-        int successCount = 0;
-        for (CommentDocument doc : documents) {
-            try {
-                IndexRequest<CommentDocument> request = IndexRequest.of(i -> i
-                        .index(INDEX_NAME)
-                        .id(doc.getCid())
-                        .document(doc));
-                IndexResponse response = client.index(request);
-                if (response.result().name().equalsIgnoreCase("Created")
-                        || response.result().name().equalsIgnoreCase("Updated")) {
-                    successCount++;
-                }
-            } catch (Exception e) {
-                System.err.println("❌ 写入失败：" + doc.getCid() + " - " + e.getMessage());
+                toDocuments(chunk, pidToUuid).forEach(session);
+                // 本块全部写完再推进断点，中断后重跑最多重复索引一块（按 cid 覆盖，幂等）
+                session.sync();
+                lastId = chunk.get(chunk.size() - 1).getId();
+                onChunk.accept(lastId, chunk.size());
+
+                if (chunk.size() < syncChunkSize) break;
             }
+            BulkIndexResult result = session.finish();
+            if (afterId == 0) lucene.markBackfilled();
+            return result;
         }
-
-        return "✅ 已成功导入 " + successCount + " / " + documents.size() + " 条评论到 Elasticsearch！";
     }
 
     /**
      * ✅ 调用 Flask 服务触发情感分析
      */
     public String analyzeSentimentByPython(String pid) {
-        String flaskUrl = "http://127.0.0.1:5001/sentiment/analyze";
         try {
-            RestTemplate restTemplate = new RestTemplate();
-
             Map<String, String> body = new HashMap<>();
             body.put("pid", pid);
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, String>> request = new HttpEntity<>(body, headers);
-
-            ResponseEntity<String> response = restTemplate.postForEntity(flaskUrl, request, String.class);
-            return "✅ 已触发情感分析任务。Flask 返回：" + response.getBody();
+            String response = pythonServiceClient.postJson("/sentiment/analyze", body);
+            return "✅ 已触发情感分析任务。Flask 返回：" + response;
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -111,45 +129,61 @@ public class DataSyncService {
         }
 
         // ✅ 获取该项目 uuid
-        String uuid = getUuidByPid(pid);
+        Map<String, String> pidToUuid = new HashMap<>();
+        pidToUuid.put(pid, getUuidByPid(pid));
+
+        BulkIndexResult result;
+        try (CommentBulkIndexer.Session session = commentBulkIndexer.open("sync " + pid, INDEX_NAME)) {
+            for (int from = 0; from < comments.size(); from += ENRICH_BATCH) {
+                List<Comment> chunk = comments.subList(from, Math.min(from + ENRICH_BATCH, comments.size()));
+                toDocuments(chunk, pidToUuid).forEach(session);
+            }
+            result = session.finish();
+        }
+
+        return "✅ 项目 " + pid + " 已成功同步 " + result.getIndexed() + " 条评论至 Elasticsearch。"
+                + result.summary() + failureHint(result);
+    }
 
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        int successCount = 0;
+    /**
+     * ✅ 一块评论转 ES 文档：情感标签按块一次 IN 查询取回，uuid 复用 pid→uuid 映射
+     */
+    List<CommentDocument> toDocuments(List<Comment> comments, Map<String, String> pidToUuid) {
+        Set<String> cids = new HashSet<>();
+        for (Comment c : comments) cids.add(c.getCid());
+        Map<String, Integer> labels = new HashMap<>();
+        for (Sentiment s : sentimentDao.selectLabelsByCids(cids)) {
+            // 同一 cid 多条分析记录时取第一条，与原逐条查询的 LIMIT 1 一致
+            labels.putIfAbsent(s.getCid(), s.getSentimentLabel());
+        }
 
+        List<CommentDocument> documents = new ArrayList<>(comments.size());
         for (Comment c : comments) {
             CommentDocument doc = new CommentDocument();
             doc.setCid(c.getCid());
             doc.setContent_clean(c.getContent());
             doc.setUsername(c.getUsername());
             doc.setLike_count(c.getLikeCount());
-            Integer label = sentimentDao.findLabelByCid(c.getCid());
-            doc.setSentiment_label(label != null ? label : 0);
-            doc.setComment_time(c.getCommentTime() != null ? c.getCommentTime().format(formatter) : null);
+            // 未做情感分析的评论不写标签（与入库流水线、按项目重建一致），不当作中性（0）
+            doc.setSentiment_label(labels.get(c.getCid()));
+            doc.setComment_time(c.getCommentTime() != null ? c.getCommentTime().format(TIME_FORMATTER) : null);
             doc.setPid(c.getPid());
-            doc.setUuid(uuid);
-
-            try {
-                IndexRequest<CommentDocument> request = IndexRequest.of(i -> i
-                        .index(INDEX_NAME)
-                        .id(doc.getCid())
-                        .document(doc));
-                IndexResponse response = client.index(request);
-                if (response.result().name().equalsIgnoreCase("Created")
-                        || response.result().name().equalsIgnoreCase("Updated")) {
-                    successCount++;
-                }
-            } catch (Exception e) {
-                System.err.println("❌ 写入失败：" + doc.getCid() + " - " + e.getMessage());
-            }
+            // 同步期间新建的项目不在初始映射里，补查一次
+            doc.setUuid(pidToUuid.computeIfAbsent(c.getPid(), this::getUuidByPid));
+            documents.add(doc);
         }
+        return documents;
+    }
 
-        return "✅ 项目 " + pid + " 已成功同步 " + successCount + " 条评论至 Elasticsearch。";
+    // 失败时附上第一条失败原因，完整明细见日志
+    private static String failureHint(BulkIndexResult result) {
+        return result.getFailures().isEmpty() ? "" : "（首个失败：" + result.getFailures().get(0) + "）";
     }
 
     /**
      * ✅ 从 project 表查询所有 pid → uuid 映射
      */
-    private Map<String, String> getProjectUuidMap() {
+    Map<String, String> getProjectUuidMap() {
         String sql = "SELECT pid, uuid FROM project";
         List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql);
         Map<String, String> map = new HashMap<>();
@@ -162,7 +196,7 @@ public class DataSyncService {
     /**
      * ✅ 根据 pid 查询 uuid（单项目）
      */
-    private String getUuidByPid(String pid) {
+    String getUuidByPid(String pid) {
         try {
             String sql = "SELECT uuid FROM project WHERE pid = ?";
             return jdbcTemplate.queryForObject(sql, String.class, pid);
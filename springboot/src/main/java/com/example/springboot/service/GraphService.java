@@ -1,21 +1,25 @@
 package com.example.springboot.service;
 
+import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONObject;
-import com.example.springboot.utils.HttpUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
 public class GraphService {
 
+    @Autowired
+    private PythonServiceClient pythonServiceClient;
+
     // 调用 Flask 构建图接口
     public JSONObject buildGraph(String pid) {
         JSONObject body = new JSONObject();
         body.put("pid", pid);
-        return HttpUtils.doPost("/graph/build", body);
+        return JSON.parseObject(pythonServiceClient.postJson("/graph/build", body.toJSONString()));
     }
 
     // 调用 Flask 导出图接口
     public JSONObject getGraphProject(String pid) {
-        return HttpUtils.doGet("/graph/project?pid=" + pid);
+        return JSON.parseObject(pythonServiceClient.get("/graph/project?pid=" + pid));
     }
 }
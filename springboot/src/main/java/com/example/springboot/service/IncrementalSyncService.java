@@ -0,0 +1,256 @@
+package com.example.springboot.service;
+
+import com.example.springboot.dao.CommentDao;
+import com.example.springboot.dao.SentimentDao;
+import com.example.springboot.dao.SyncCheckpointDao;
+import com.example.springboot.entity.Comment;
+import com.example.springboot.entity.Sentiment;
+import com.example.springboot.entity.SyncCheckpoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MySQL → ES 增量同步
+ * - 水位 = (updated_at, 主键)，记录在 es_sync_checkpoint，按水位顺序分批拉取修改行
+ * - comment 变更：整条文档重新写入；sentiment 变更：只局部更新 sentiment_label
+ * - 只同步插入之后的修改（updated_at > created_at）：新插入的评论已由上传流水线写入 ES，不再重复索引；
+ *   上传时 ES 不可用导致的缺失记在任务错误里，用全量同步补齐
+ * - 只拉取 updated_at 早于 NOW - settle-seconds 的行，给未提交的事务留出时间
+ * - 指标：es.sync.backlog{source}（水位之后的行数）、es.sync.lag.seconds{source}（最早未同步行距今秒数）、es.sync.rows{source}
+ * 首次启用时以当前最大 (updated_at, 主键) 为水位，历史数据通过全量同步处理
+ */
+@Slf4j
+@Service
+public class IncrementalSyncService {
+
+    private static final String INDEX_NAME = CommentIndexManager.ALIAS;
+    private static final String SOURCE_COMMENT = "comment";
+    private static final String SOURCE_SENTIMENT = "sentiment";
+
+    @Autowired
+    private CommentDao commentDao;
+
+    @Autowired
+    private SentimentDao sentimentDao;
+
+    @Autowired
+    private SyncCheckpointDao syncCheckpointDao;
+
+    @Autowired
+    private DataSyncService dataSyncService;
+
+    @Autowired
+    private CommentBulkIndexer commentBulkIndexer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${es.incremental.enabled:true}")
+    private boolean enabled;
+
+    // 每批拉取行数
+    @Value("${es.incremental.batch-size:1000}")
+    private int batchSize;
+
+    // 每轮最多处理批数，积压多时分多轮追上，避免单轮占用过久
+    @Value("${es.incremental.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    // 沉淀期（秒）：只同步修改时间早于 NOW - 沉淀期 的行
+    @Value("${es.incremental.settle-seconds:5}")
+    private int settleSeconds;
+
+    private final AtomicLong commentBacklog = new AtomicLong();
+    private final AtomicLong commentLag = new AtomicLong();
+    private final AtomicLong sentimentBacklog = new AtomicLong();
+    private final AtomicLong sentimentLag = new AtomicLong();
+    private Counter commentRows;
+    private Counter sentimentRows;
+
+    // pid → uuid 缓存，未命中时 toDocuments 会补查
+    private volatile Map<String, String> pidToUuid;
+
+    @PostConstruct
+    public void init() {
+        registerGauges(SOURCE_COMMENT, commentBacklog, commentLag);
+        registerGauges(SOURCE_SENTIMENT, sentimentBacklog, sentimentLag);
+        commentRows = Counter.builder("es.sync.rows").tag("source", SOURCE_COMMENT)
+                .description("增量同步写入 ES 的行数").register(meterRegistry);
+        sentimentRows = Counter.builder("es.sync.rows").tag("source", SOURCE_SENTIMENT)
+                .description("增量同步写入 ES 的行数").register(meterRegistry);
+    }
+
+    private void registerGauges(String source, AtomicLong backlog, AtomicLong lag) {
+        Gauge.builder("es.sync.backlog", backlog, AtomicLong::get).tag("source", source)
+                .description("水位之后尚未同步到 ES 的行数").register(meterRegistry);
+        Gauge.builder("es.sync.lag.seconds", lag, AtomicLong::get).tag("source", source)
+                .description("最早一条未同步行距今秒数").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${es.incremental.interval-ms:5000}",
+            initialDelayString = "${es.incremental.initial-delay-ms:10000}")
+    public void run() {
+        if (!enabled) return;
+        try {
+            syncComments();
+        } catch (DataAccessException e) {
+            // 启动早期表结构尚未补齐等情况，下一轮重试
+            log.warn("⚠️ 评论增量同步失败：{}", e.getMessage());
+        }
+        try {
+            syncSentiments();
+        } catch (DataAccessException e) {
+            log.warn("⚠️ 情感结果增量同步失败：{}", e.getMessage());
+        }
+    }
+
+    private void syncComments() {
+        SyncCheckpoint wm = loadWatermark(SOURCE_COMMENT, "SELECT MAX(updated_at), MAX(id) FROM comment");
+        pushComments(wm, INDEX_NAME, false, settleSeconds, maxBatchesPerRun);
+        updateBacklog(commentDao.selectSyncBacklog(wm.getLastTime(), wm.getLastId()), commentBacklog, commentLag);
+    }
+
+    private void syncSentiments() {
+        SyncCheckpoint wm = loadWatermark(SOURCE_SENTIMENT, "SELECT MAX(updated_at), MAX(sid) FROM sentiment");
+        pushSentiments(wm, INDEX_NAME, settleSeconds, maxBatchesPerRun);
+        updateBacklog(sentimentDao.selectSyncBacklog(wm.getLastTime(), wm.getLastId()), sentimentBacklog, sentimentLag);
+    }
+
+    /**
+     * 追平：把 since 之后修改过的评论 / 情感结果写入指定索引（重建索引切换别名后补齐重建期间的变更）
+     */
+    public void catchUp(LocalDateTime since, String index) {
+        SyncCheckpoint from = new SyncCheckpoint();
+        from.setLastTime(since);
+        from.setLastId(0L);
+        from.setSynced(0L);
+        // 重建期间上传的新评论写在旧索引里，这里连同插入一起补
+        pushComments(from, index, true, 0, Integer.MAX_VALUE);
+
+        from.setLastTime(since);
+        from.setLastId(0L);
+        pushSentiments(from, index, 0, Integer.MAX_VALUE);
+        log.info("✅ 已补齐 {} 之后的变更到 {}：{} 行", since, index, from.getSynced());
+    }
+
+    /**
+     * 从水位 wm 起分批把修改过的评论整条写入 index；水位有名字时每批写完后持久化
+     * includeInserts=false 时跳过插入后未再修改的行
+     */
+    private void pushComments(SyncCheckpoint wm, String index, boolean includeInserts, int settle, int maxBatches) {
+        CommentBulkIndexer.Session session = null;
+        try {
+            for (int i = 0; i < maxBatches; i++) {
+                List<Comment> rows = commentDao.selectChangedSince(wm.getLastTime(), wm.getLastId(), includeInserts, settle, batchSize);
+                if (rows.isEmpty()) break;
+                if (session == null) session = commentBulkIndexer.open("incremental comment → " + index, index);
+
+                dataSyncService.toDocuments(rows, pidToUuid()).forEach(session);
+                // 写完再推进水位
+                session.sync();
+                Comment last = rows.get(rows.size() - 1);
+                advance(wm, last.getUpdatedAt(), last.getId(), rows.size());
+                commentRows.increment(rows.size());
+                if (rows.size() < batchSize) break;
+            }
+        } finally {
+            if (session != null) session.close();
+        }
+    }
+
+    /**
+     * 从水位 wm 起分批把情感结果以局部更新写入 index
+     */
+    private void pushSentiments(SyncCheckpoint wm, String index, int settle, int maxBatches) {
+        CommentBulkIndexer.Session session = null;
+        try {
+            for (int i = 0; i < maxBatches; i++) {
+                List<Sentiment> rows = sentimentDao.selectChangedSince(wm.getLastTime(), wm.getLastId(), settle, batchSize);
+                if (rows.isEmpty()) break;
+                if (session == null) session = commentBulkIndexer.open("incremental sentiment → " + index, index);
+
+                Map<String, String> uuids = pidToUuid();
+                for (Sentiment s : rows) {
+                    String uuid = s.getPid() != null ? uuids.computeIfAbsent(s.getPid(), dataSyncService::getUuidByPid) : null;
+                    // 标签为空时照样写空，不当作中性（0）
+                    session.update(s.getCid(), uuid, Collections.singletonMap("sentiment_label", s.getSentimentLabel()));
+                }
+                session.sync();
+                Sentiment last = rows.get(rows.size() - 1);
+                advance(wm, last.getUpdatedAt(), last.getSid(), rows.size());
+                sentimentRows.increment(rows.size());
+                if (rows.size() < batchSize) break;
+            }
+        } finally {
+            if (session != null) session.close();
+        }
+    }
+
+    private Map<String, String> pidToUuid() {
+        Map<String, String> map = pidToUuid;
+        if (map == null) {
+            map = new ConcurrentHashMap<>(dataSyncService.getProjectUuidMap());
+            pidToUuid = map;
+        }
+        return map;
+    }
+
+    /**
+     * 读取水位；首次启用时以当前最大 (updated_at, 主键) 初始化
+     */
+    private SyncCheckpoint loadWatermark(String source, String maxSql) {
+        SyncCheckpoint wm = syncCheckpointDao.selectByPrimaryKey(checkpointName(source));
+        if (wm != null && wm.getLastTime() != null) return wm;
+
+        wm = jdbcTemplate.queryForObject(maxSql, (rs, rowNum) -> {
+            SyncCheckpoint c = new SyncCheckpoint();
+            Timestamp maxTime = rs.getTimestamp(1);
+            c.setLastTime(maxTime != null ? maxTime.toLocalDateTime() : LocalDateTime.of(1970, 1, 1, 0, 0));
+            c.setLastId(rs.getLong(2));
+            c.setSynced(0L);
+            return c;
+        });
+        wm.setName(checkpointName(source));
+        syncCheckpointDao.saveWatermark(wm.getName(), wm.getLastTime(), wm.getLastId(), 0);
+        log.info("✅ {} 增量同步水位初始化：{} / {}", source, wm.getLastTime(), wm.getLastId());
+        return wm;
+    }
+
+    private void advance(SyncCheckpoint wm, LocalDateTime lastTime, long lastId, int rows) {
+        wm.setLastTime(lastTime);
+        wm.setLastId(lastId);
+        wm.setSynced(wm.getSynced() + rows);
+        if (wm.getName() != null) {
+            syncCheckpointDao.saveWatermark(wm.getName(), lastTime, lastId, wm.getSynced());
+        }
+    }
+
+    private static void updateBacklog(Map<String, Object> row, AtomicLong backlog, AtomicLong lag) {
+        backlog.set(((Number) row.get("backlog")).longValue());
+        lag.set(((Number) row.get("lag")).longValue());
+    }
+
+    private static String checkpointName(String source) {
+        return "incremental_" + source;
+    }
+}
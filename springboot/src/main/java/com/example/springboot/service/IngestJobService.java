@@ -0,0 +1,222 @@
+package com.example.springboot.service;
+
+import com.example.springboot.common.ResultCode;
+import com.example.springboot.dto.IngestJob;
+import com.example.springboot.entity.Project;
+import com.example.springboot.exception.CustomException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 上传清洗任务调度
+ * - 上传请求只负责落盘临时文件 + 建项目，立即返回 jobId（= pid）
+ * - 解析 / 入库 / 清洗 / 索引在有界线程池中执行，队列满时直接拒绝
+ * - 进度通过查询接口或 SSE 推送获取，项目表同步记录 status / start_time / end_time
+ */
+@Slf4j
+@Service
+public class IngestJobService {
+
+    @Autowired
+    private DataCleanService dataCleanService;
+
+    @Autowired
+    private CleanEngineService cleanEngineService;
+
+    // 同时运行的任务数
+    @Value("${ingest.jobs.workers:2}")
+    private int workers;
+
+    // 排队任务上限
+    @Value("${ingest.jobs.queue-capacity:20}")
+    private int queueCapacity;
+
+    // 结束的任务在内存中保留多久（分钟），之后只能通过项目表查询状态
+    @Value("${ingest.jobs.retain-minutes:60}")
+    private long retainMinutes;
+
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService ticker;
+
+    private final Map<String, IngestJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Future<?>> futures = new ConcurrentHashMap<>();
+    private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger seq = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> new Thread(r, "ingest-job-" + seq.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ingest-job-events");
+            t.setDaemon(true);
+            return t;
+        });
+        // 每秒向订阅者推送一次进度
+        ticker.scheduleAtFixedRate(this::broadcastAll, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        jobs.values().forEach(IngestJob::requestCancel);
+        executor.shutdown();
+    }
+
+    /**
+     * 提交任务：同步落盘上传文件，避免请求结束后 multipart 临时文件被清理
+     */
+    public IngestJob submit(MultipartFile file, String projectName, String optionsJson, String userUuid,
+                            String engine) throws IOException {
+        if (!StringUtils.hasText(userUuid)) {
+            throw new CustomException(ResultCode.PARAM_LOST_ERROR.code, "user_uuid 不能为空");
+        }
+        String resolvedEngine;
+        try {
+            resolvedEngine = cleanEngineService.resolveEngine(engine);
+            cleanEngineService.checkOptions(resolvedEngine, optionsJson);
+        } catch (IllegalArgumentException e) {
+            throw new CustomException(ResultCode.PARAM_ERROR.code, e.getMessage());
+        }
+        evictFinished();
+
+        File temp = Files.createTempFile("upload_", "_" + file.getOriginalFilename()).toFile();
+        file.transferTo(temp);
+
+        String pid = UUID.randomUUID().toString();
+        Project project = dataCleanService.createProject(pid, projectName, optionsJson, userUuid);
+        IngestJob job = new IngestJob(pid, projectName, userUuid, resolvedEngine);
+        jobs.put(pid, job);
+
+        try {
+            futures.put(pid, executor.submit(() -> run(job, temp, project, optionsJson)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(pid);
+            deleteQuietly(temp);
+            dataCleanService.updateProjectStatus(pid, "fail");
+            log.warn("⚠️ 清洗任务队列已满，拒绝任务：{}", pid);
+            throw new CustomException(ResultCode.ERROR.code, "清洗任务排队已满，请稍后再试");
+        }
+        log.info("📥 清洗任务已提交：{}（{}，引擎 {}）", pid, projectName, resolvedEngine);
+        return job;
+    }
+
+    private void run(IngestJob job, File temp, Project project, String optionsJson) {
+        try {
+            // 排队期间已被取消
+            if (job.isCancelRequested()) {
+                dataCleanService.updateProjectStatus(job.getJobId(), "cancelled");
+                job.finish("cancelled", "任务已取消");
+                return;
+            }
+            dataCleanService.processData(job, temp, project, optionsJson);
+        } catch (RuntimeException e) {
+            log.error("❌ 清洗任务异常：{}", job.getJobId(), e);
+            dataCleanService.updateProjectStatus(job.getJobId(), "fail");
+            job.addError(String.valueOf(e.getMessage()));
+            job.finish("fail", "处理失败");
+        } finally {
+            deleteQuietly(temp);
+            futures.remove(job.getJobId());
+            broadcast(job);
+            log.info("🏁 清洗任务结束：{} -> {}，{} 行，{} 行/秒",
+                    job.getJobId(), job.getState(), job.getRowsProcessed(), job.getRowsPerSec());
+        }
+    }
+
+    public IngestJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * 取消任务：运行中的任务在下一个入库块 / 阶段边界停止，已入库的数据保留
+     * @return 任务不存在或已结束时返回 false
+     */
+    public boolean cancel(String jobId) {
+        IngestJob job = jobs.get(jobId);
+        if (job == null || job.isFinished()) return false;
+        job.requestCancel();
+        log.info("⏹️ 请求取消清洗任务：{}", jobId);
+        return true;
+    }
+
+    /**
+     * SSE 订阅：立即推送一次当前状态，之后每秒推送，任务结束后关闭连接
+     */
+    public SseEmitter subscribe(String jobId) {
+        IngestJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new CustomException(ResultCode.DATA_NOT_FOUND);
+        }
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(30));
+        List<SseEmitter> list = emitters.computeIfAbsent(jobId, k -> new CopyOnWriteArrayList<>());
+        list.add(emitter);
+        emitter.onCompletion(() -> list.remove(emitter));
+        emitter.onTimeout(() -> list.remove(emitter));
+        emitter.onError(e -> list.remove(emitter));
+        broadcast(job);
+        return emitter;
+    }
+
+    private void broadcastAll() {
+        try {
+            for (String jobId : emitters.keySet()) {
+                IngestJob job = jobs.get(jobId);
+                if (job == null) {
+                    List<SseEmitter> stale = emitters.remove(jobId);
+                    if (stale != null) stale.forEach(SseEmitter::complete);
+                } else {
+                    broadcast(job);
+                }
+            }
+        } catch (RuntimeException e) {
+            // 不能让异常终止定时任务
+            log.warn("⚠️ 任务进度推送失败：{}", e.getMessage());
+        }
+    }
+
+    private void broadcast(IngestJob job) {
+        List<SseEmitter> list = emitters.get(job.getJobId());
+        if (list == null) return;
+        boolean finished = job.isFinished();
+        for (SseEmitter emitter : list) {
+            try {
+                emitter.send(SseEmitter.event().name("progress").data(job));
+                if (finished) emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                list.remove(emitter);
+            }
+        }
+        if (finished) emitters.remove(job.getJobId());
+    }
+
+    private void evictFinished() {
+        LocalDateTime expire = LocalDateTime.now().minusMinutes(retainMinutes);
+        jobs.values().removeIf(job -> job.isFinished() && job.getEndTime().isBefore(expire));
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
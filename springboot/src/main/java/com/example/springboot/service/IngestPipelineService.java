@@ -0,0 +1,464 @@
+package com.example.springboot.service;
+
+import com.example.springboot.dao.CommentDao;
+import com.example.springboot.dto.BatchInsertResult;
+import com.example.springboot.dto.BulkIndexResult;
+import com.example.springboot.dto.IngestJob;
+import com.example.springboot.entity.Comment;
+import com.example.springboot.entity.CommentDocument;
+import com.example.springboot.utils.CommentCleaner;
+import com.example.springboot.utils.CommentFingerprint;
+import com.example.springboot.utils.CommentTimeParser;
+import com.example.springboot.utils.LongHashSet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 上传入库流水线：解析 -> [Java 清洗] -> 去重 -> 批量写库 -> ES 批量索引（CommentBulkIndexer 会话）
+ * - 各阶段独立线程，阶段之间用有界队列（按块）衔接，队列满时上游阻塞，内存占用有上限
+ * - 前面的块在写库 / 建索引时，解析线程继续读取文件尾部
+ * - 每阶段单线程消费，块顺序不变，父评论仍先于回复入库
+ * - 取消 / 任一阶段失败时写库及之前的阶段停止；已写入 MySQL 的块照常送到索引阶段建索引
+ * - 指标：ingest.pipeline.queue.depth / ingest.pipeline.rows / ingest.pipeline.batch（按 stage 打标签）
+ */
+@Slf4j
+@Service
+public class IngestPipelineService {
+
+    private static final String[] STAGES = {"clean", "dedup", "write", "index"};
+
+    // 队列结束标记（按引用比较）
+    private static final List<Comment> END = new ArrayList<>(0);
+
+    @Autowired
+    private CommentDao commentDao;
+
+    @Autowired
+    private CommentBatchWriter commentBatchWriter;
+
+    @Autowired
+    private CommentBulkIndexer commentBulkIndexer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 解析阶段每块条数
+    @Value("${ingest.pipeline.chunk-size:1000}")
+    private int chunkSize;
+
+    // 各阶段输入队列容量（块数）
+    @Value("${ingest.pipeline.queue-capacity:4}")
+    private int queueCapacity;
+
+    private final Set<Pipeline> active = ConcurrentHashMap.newKeySet();
+    private final Map<String, Counter> rowCounters = new HashMap<>();
+    private final Map<String, Timer> batchTimers = new HashMap<>();
+    private ExecutorService stageExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger seq = new AtomicInteger();
+        stageExecutor = Executors.newCachedThreadPool(r -> new Thread(r, "ingest-stage-" + seq.incrementAndGet()));
+
+        rowCounters.put("parse", Counter.builder("ingest.pipeline.rows").tag("stage", "parse")
+                .description("流水线各阶段处理行数").register(meterRegistry));
+        for (String stage : STAGES) {
+            Gauge.builder("ingest.pipeline.queue.depth", active,
+                            set -> set.stream().mapToInt(p -> p.depth(stage)).sum())
+                    .tag("stage", stage)
+                    .description("流水线各阶段输入队列中的块数")
+                    .register(meterRegistry);
+            rowCounters.put(stage, Counter.builder("ingest.pipeline.rows").tag("stage", stage)
+                    .description("流水线各阶段处理行数").register(meterRegistry));
+            batchTimers.put(stage, Timer.builder("ingest.pipeline.batch").tag("stage", stage)
+                    .description("流水线各阶段单块耗时").register(meterRegistry));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        active.forEach(Pipeline::close);
+        stageExecutor.shutdownNow();
+    }
+
+    /**
+     * 为一次上传启动流水线；用完必须 close（建议 try-with-resources）
+     */
+    public Pipeline open(IngestJob job) {
+        return open(job, null);
+    }
+
+    /**
+     * @param cleaner 非空时增加 clean 阶段：每块原始评论之后追加其清洗结果（Java 清洗引擎）
+     */
+    public Pipeline open(IngestJob job, CommentCleaner cleaner) {
+        Pipeline pipeline = new Pipeline(job, cleaner);
+        active.add(pipeline);
+        pipeline.start();
+        return pipeline;
+    }
+
+    /**
+     * 单次上传的流水线实例：调用线程即解析阶段，accept 攒块后送入下一阶段
+     */
+    public class Pipeline implements Consumer<Comment>, AutoCloseable {
+
+        private final IngestJob job;
+        private final CommentCleaner cleaner;
+        private final BlockingQueue<List<Comment>> cleanQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<List<Comment>> dedupQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<List<Comment>> writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<List<Comment>> indexQueue = new ArrayBlockingQueue<>(queueCapacity);
+
+        // dedup 的方法按阶段线程划分（见 CommentDedupIndex），insertedParents 只在写库阶段访问
+        private final CommentDedupIndex dedup = new CommentDedupIndex(commentDao);
+        private final LongHashSet insertedParents = new LongHashSet(64 * 1024);
+
+        private final List<Future<?>> stages = new ArrayList<>();
+        private List<Comment> buffer = new ArrayList<>(chunkSize);
+        private volatile Throwable failure;
+        // 取消 / 失败：只停解析、清洗、去重、写库；索引阶段不看它，把已入库的块排空到 END 为止
+        private volatile boolean aborted;
+        // 索引阶段已退出，写库阶段不再等待往索引队列送块
+        private volatile boolean indexStopped;
+        private boolean finished;
+
+        private final LongAdder parentInserted = new LongAdder();
+        private final LongAdder childInserted = new LongAdder();
+        private final LongAdder cleaned = new LongAdder();
+        // 索引阶段：429 退避、按条数 / 体积分批、在途请求背压、检索缓存失效都由批量索引会话处理
+        private final CommentBulkIndexer.Session indexSession;
+
+        Pipeline(IngestJob job, CommentCleaner cleaner) {
+            this.job = job;
+            this.cleaner = cleaner;
+            this.indexSession = commentBulkIndexer.open("ingest " + job.getJobId(), CommentIndexManager.ALIAS);
+        }
+
+        void start() {
+            if (cleaner != null) {
+                stages.add(stageExecutor.submit(() -> runStage("clean", cleanQueue, dedupQueue, this::cleanChunk)));
+            }
+            stages.add(stageExecutor.submit(() -> runStage("dedup", dedupQueue, writeQueue, this::dedupChunk)));
+            stages.add(stageExecutor.submit(() -> runStage("write", writeQueue, indexQueue, this::writeChunk)));
+            stages.add(stageExecutor.submit(() -> runStage("index", indexQueue, null, this::indexChunk)));
+        }
+
+        @Override
+        public void accept(Comment c) {
+            buffer.add(c);
+            if (buffer.size() >= chunkSize) flush();
+        }
+
+        /**
+         * 把当前缓冲送入第一个阶段的队列；下游处理不过来时在此阻塞
+         */
+        public void flush() {
+            if (buffer.isEmpty()) return;
+            // 每块送出前检查取消，已入库的块保留
+            job.checkCancelled();
+            List<Comment> chunk = buffer;
+            buffer = new ArrayList<>(chunkSize);
+            rowCounters.get("parse").increment(chunk.size());
+            job.addStageRows("parse", chunk.size());
+            job.addRows(chunk.size());
+            if (!put(head(), chunk)) throw stageFailure();
+        }
+
+        /**
+         * 送出结束标记并等待各阶段处理完剩余数据
+         */
+        public void finish() {
+            flush();
+            if (!put(head(), END)) throw stageFailure();
+            awaitStages();
+            finished = true;
+            finishIndex();
+            if (failure != null) throw stageFailure();
+            log.info("✅ 入库流水线完成：父={}，子={}，索引={}，去重跳过={}",
+                    parentInserted.sum(), childInserted.sum(), indexSession.getIndexed(), dedup.getSkipped());
+        }
+
+        /**
+         * 未正常 finish 时中止各阶段（取消 / 解析异常），已写入的数据保留
+         */
+        @Override
+        public void close() {
+            if (!finished) {
+                aborted = true;
+                awaitStages();
+                finished = true;
+                // 已入库的行照常建索引
+                finishIndex();
+            }
+            active.remove(this);
+        }
+
+        // 发送剩余文档并等待在途请求结束，失败明细记入任务
+        private void finishIndex() {
+            BulkIndexResult result = indexSession.finish();
+            for (String f : result.getFailures()) {
+                job.addError("索引失败：" + f);
+            }
+        }
+
+        public long getParentInserted() {
+            return parentInserted.sum();
+        }
+
+        public long getChildInserted() {
+            return childInserted.sum();
+        }
+
+        public long getIndexed() {
+            return indexSession.getIndexed();
+        }
+
+        public long getSkipped() {
+            return dedup.getSkipped();
+        }
+
+        /**
+         * Java 清洗引擎产出的清洗结果条数（去重前）
+         */
+        public long getCleaned() {
+            return cleaned.sum();
+        }
+
+        private BlockingQueue<List<Comment>> head() {
+            return cleaner != null ? cleanQueue : dedupQueue;
+        }
+
+        int depth(String stage) {
+            return switch (stage) {
+                case "clean" -> cleanQueue.size();
+                case "dedup" -> dedupQueue.size();
+                case "write" -> writeQueue.size();
+                default -> indexQueue.size();
+            };
+        }
+
+        // ---------------------- 阶段调度 ----------------------
+
+        private void runStage(String stage, BlockingQueue<List<Comment>> in, BlockingQueue<List<Comment>> out,
+                              Function<List<Comment>, List<Comment>> fn) {
+            Counter rows = rowCounters.get(stage);
+            Timer timer = batchTimers.get(stage);
+            boolean indexing = in == indexQueue;
+            try {
+                while (true) {
+                    List<Comment> chunk = take(in, indexing);
+                    if (chunk == null || chunk == END) break;
+                    // 取消后不再处理新块（尤其不再写库）；索引阶段除外
+                    if (aborted && !indexing) break;
+                    job.setQueueDepth(stage, in.size());
+
+                    List<Comment> result = timer.record(() -> fn.apply(chunk));
+                    rows.increment(chunk.size());
+                    job.addStageRows(stage, chunk.size());
+
+                    if (out != null && !result.isEmpty() && !put(out, result)) break;
+                }
+            } catch (Throwable e) {
+                log.error("❌ 入库流水线阶段 {} 失败：{}", stage, e.getMessage(), e);
+                job.addError(stage + " 阶段失败：" + e.getMessage());
+                if (failure == null) failure = e;
+                aborted = true;
+            } finally {
+                // 写库阶段无论是否取消都送结束标记，索引阶段据此结束；其他阶段取消后 put 直接返回
+                if (out != null) put(out, END);
+                if (indexing) indexStopped = true;
+                job.setQueueDepth(stage, 0);
+            }
+        }
+
+        // 送往索引队列的块已经入库，取消后也要送达，只有索引阶段已退出时放弃
+        private boolean put(BlockingQueue<List<Comment>> queue, List<Comment> chunk) {
+            boolean toIndex = queue == indexQueue;
+            try {
+                while (toIndex ? !indexStopped : !aborted) {
+                    if (queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                aborted = true;
+            }
+            return false;
+        }
+
+        // untilEnd：索引阶段不理会取消，一直取到 END（写库阶段退出时必定送出）
+        private List<Comment> take(BlockingQueue<List<Comment>> queue, boolean untilEnd) {
+            try {
+                while (untilEnd || !aborted) {
+                    List<Comment> chunk = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (chunk != null) return chunk;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                aborted = true;
+            }
+            return null;
+        }
+
+        private void awaitStages() {
+            for (Future<?> f : stages) {
+                try {
+                    f.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    aborted = true;
+                } catch (ExecutionException e) {
+                    if (failure == null) failure = e.getCause();
+                }
+            }
+        }
+
+        private RuntimeException stageFailure() {
+            job.checkCancelled();
+            Throwable cause = failure;
+            return new IllegalStateException("入库流水线失败：" + (cause == null ? "已中止" : cause.getMessage()), cause);
+        }
+
+        // ---------------------- 阶段实现 ----------------------
+
+        /**
+         * Java 清洗：原始评论原样下传，其后追加清洗副本（同块内父子顺序由写库阶段保证）
+         */
+        private List<Comment> cleanChunk(List<Comment> chunk) {
+            List<Comment> result = cleaner.cleanChunk(chunk);
+            cleaned.add(result.size());
+            List<Comment> out = new ArrayList<>(chunk.size() + result.size());
+            out.addAll(chunk);
+            out.addAll(result);
+            return out;
+        }
+
+        /**
+         * 去重：同人 + 同内容 + 同清洗状态（数据库中已有的；本次上传内的重复在写库阶段判断）
+         */
+        private List<Comment> dedupChunk(List<Comment> chunk) {
+            return dedup.filterNew(chunk);
+        }
+
+        /**
+         * 批量写库，返回成功写入的评论供建索引
+         * 块内同一条评论（同人 + 同内容 + 同清洗状态）分轮写入：前一次写入失败时后面的重复行补上，成功则跳过
+         */
+        private List<Comment> writeChunk(List<Comment> chunk) {
+            List<Comment> written = new ArrayList<>(chunk.size());
+            List<Comment> pending = chunk;
+            while (!pending.isEmpty()) {
+                CommentDedupIndex.Round round = dedup.nextRound(pending);
+                List<Comment> ok = writeRound(round.first());
+                dedup.markWritten(ok);
+                written.addAll(ok);
+                pending = round.later();
+            }
+            return written;
+        }
+
+        /**
+         * 一轮写库（父 -> 子），返回成功写入的评论
+         */
+        private List<Comment> writeRound(List<Comment> chunk) {
+            List<Comment> parents = new ArrayList<>();
+            List<Comment> children = new ArrayList<>();
+            for (Comment c : chunk) {
+                if (!StringUtils.hasText(c.getParentCid())) {
+                    parents.add(c);
+                } else {
+                    children.add(c);
+                }
+            }
+
+            List<Comment> written = new ArrayList<>(chunk.size());
+
+            BatchInsertResult parentResult = commentBatchWriter.insert(parents);
+            Set<Comment> failedParents = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (BatchInsertResult.Failure f : parentResult.getFailures()) {
+                failedParents.add(f.getComment());
+                log.warn("⚠️ 父评论入库失败：username={}, contentHash={}, err={}",
+                        f.getComment().getUsername(), f.getComment().getContent().hashCode(), f.getError());
+                job.addError("父评论入库失败：" + f.getError());
+            }
+            for (Comment c : parents) {
+                if (failedParents.contains(c)) continue;
+                insertedParents.add(CommentFingerprint.ofCid(c.getCid()));
+                written.add(c);
+            }
+            parentInserted.add(parentResult.getInserted());
+
+            if (children.isEmpty()) return written;
+
+            // 子（如果父不存在，则降级为无父）
+            // 父存在性：先查本次上传已入库的父评论，剩下的（来自历史上传）一次 IN 查询
+            Set<String> unresolved = new HashSet<>();
+            for (Comment c : children) {
+                if (!insertedParents.contains(CommentFingerprint.ofCid(c.getParentCid()))) {
+                    unresolved.add(c.getParentCid());
+                }
+            }
+            if (!unresolved.isEmpty()) {
+                Set<String> existing = new HashSet<>(commentDao.selectExistingCids(unresolved));
+                for (Comment c : children) {
+                    if (unresolved.contains(c.getParentCid()) && !existing.contains(c.getParentCid())) {
+                        c.setParentCid(null);
+                    }
+                }
+            }
+            BatchInsertResult childResult = commentBatchWriter.insert(children);
+            Set<Comment> failedChildren = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (BatchInsertResult.Failure f : childResult.getFailures()) {
+                failedChildren.add(f.getComment());
+                log.warn("⚠️ 子评论入库失败：username={}, contentHash={}, err={}",
+                        f.getComment().getUsername(), f.getComment().getContent().hashCode(), f.getError());
+                job.addError("子评论入库失败：" + f.getError());
+            }
+            for (Comment c : children) {
+                if (!failedChildren.contains(c)) written.add(c);
+            }
+            childInserted.add(childResult.getInserted());
+            return written;
+        }
+
+        /**
+         * 送入批量索引会话（同时写本地 Lucene 索引）；ES 不可用时只记录错误，不影响入库
+         */
+        private List<Comment> indexChunk(List<Comment> chunk) {
+            for (Comment c : chunk) {
+                indexSession.accept(toDocument(c));
+            }
+            return Collections.emptyList();
+        }
+
+        private CommentDocument toDocument(Comment c) {
+            CommentDocument doc = new CommentDocument();
+            doc.setCid(c.getCid());
+            doc.setContent_clean(c.getContent());
+            doc.setUsername(c.getUsername());
+            doc.setLike_count(c.getLikeCount() == null ? 0 : c.getLikeCount());
+            if (c.getCommentTime() != null) {
+                doc.setComment_time(CommentTimeParser.FORMATTER.format(c.getCommentTime()));
+            }
+            doc.setPid(c.getPid());
+            doc.setUuid(job.getUuid());
+            return doc;
+        }
+    }
+}
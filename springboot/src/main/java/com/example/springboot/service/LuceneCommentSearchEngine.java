@@ -0,0 +1,487 @@
+package com.example.springboot.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.example.springboot.common.ResultCode;
+import com.example.springboot.dto.CommentSearchQuery;
+import com.example.springboot.entity.CommentDocument;
+import com.example.springboot.exception.CustomException;
+import com.example.springboot.utils.CommentTimeParser;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.ngram.NGramTokenizer;
+import org.apache.lucene.document.*;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.QueryBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * 嵌入式 Lucene 备用检索（ES 不可用时由 CommentSearchRouter 切换过来；search.engine=lucene 时作为唯一引擎）
+ * - 每个租户（uuid）一个索引目录 {path}/{uuid}，MMapDirectory 打开，IndexWriter / SearcherManager 常驻
+ * - 与 ES 走同一条写入链路：CommentBulkIndexer 和导入流水线写 ES 的同时写这里，按 cid 覆盖；
+ *   首次启用时调用一次 /comment/sync?resume=false（或 /es/rebuild）把 MySQL 中的存量数据灌进来
+ * - 回填标记：从头跑完的全量同步覆盖全部租户，完成后写 {path}/backfilled（内容为字段结构版本）；
+ *   没有标记（或字段结构已变）时索引不完整，检索直接抛错，由 CommentSearchRouter 按 ES 不可用处理；
+ *   有标记后租户目录不存在说明该租户确实没有数据
+ * - 定时 refresh（新写入可见）与 commit（落盘）；过滤条件与 ES 相同（uuid 为空时检索全部租户），
+ *   有关键词按相关度排序，否则按 comment_time、cid 倒序；不支持统计（facets）和高亮；
+ *   游标分页 / 导出 / 联想只有 ES 支持，search.engine=lucene 时调用 rejectIfStandalone 明确拒绝
+ */
+@Slf4j
+@Service
+public class LuceneCommentSearchEngine implements CommentSearchEngine {
+
+    private static final String NO_TENANT = "_none";
+    private static final String BACKFILL_MARKER = "backfilled";
+    // 字段结构版本：toLucene 的字段有变化时加一，旧索引需要重新回填
+    private static final String FORMAT = "2";
+    private static final int MAX_RESULT_WINDOW = 10000;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    // 主检索引擎：elasticsearch / lucene（lucene 时不再写 ES）
+    @Value("${search.engine:elasticsearch}")
+    private String engine;
+
+    // 是否维护 Lucene 备用索引（ES 为主时用于故障切换）
+    @Value("${search.lucene.enabled:true}")
+    private boolean backupEnabled;
+
+    @Value("${search.lucene.path:./data/lucene}")
+    private String path;
+
+    // 每个租户 IndexWriter 的内存缓冲（MB）
+    @Value("${search.lucene.ram-buffer-mb:16}")
+    private double ramBufferMb;
+
+    // 用户名子串匹配：与 ES 的 username.ngram 相同，按 1~2 字切分、转小写
+    private final Analyzer analyzer = new PerFieldAnalyzerWrapper(new CJKAnalyzer(CharArraySet.EMPTY_SET),
+            Map.of("username_ngram", new Analyzer() {
+                @Override
+                protected TokenStreamComponents createComponents(String fieldName) {
+                    Tokenizer tokenizer = new NGramTokenizer(1, 2);
+                    return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+                }
+            }));
+    // 按目录名（dirName）索引
+    private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+    private Path root;
+    private volatile boolean backfilled;
+
+    private record Tenant(Directory directory, IndexWriter writer, SearcherManager searcher) {
+    }
+
+    @PostConstruct
+    public void init() {
+        root = Paths.get(path).toAbsolutePath();
+        if (!isEnabled()) return;
+        Path marker = root.resolve(BACKFILL_MARKER);
+        try {
+            backfilled = Files.exists(marker) && FORMAT.equals(Files.readString(marker).trim());
+        } catch (IOException e) {
+            log.warn("⚠️ Lucene 回填标记读取失败：{}", e.getMessage());
+        }
+        log.info("✅ Lucene 检索索引目录：{}（{}）", root, isStandalone() ? "主引擎" : "备用");
+        if (!backfilled) {
+            log.warn("⚠️ Lucene 索引尚未回填存量数据，调用 /comment/sync?resume=false 后才会用于检索");
+        }
+    }
+
+    public boolean isEnabled() {
+        return backupEnabled || isStandalone();
+    }
+
+    /**
+     * 已启用且回填完成，可以接管检索
+     */
+    public boolean isAvailable() {
+        return isEnabled() && backfilled;
+    }
+
+    /**
+     * 只用 Lucene，不依赖 ES（小规模部署）
+     */
+    public boolean isStandalone() {
+        return "lucene".equalsIgnoreCase(engine);
+    }
+
+    /**
+     * ES 专有的功能在 search.engine=lucene 时给出明确提示，而不是报 ES 连接错误
+     */
+    public void rejectIfStandalone(String feature) {
+        if (isStandalone()) {
+            throw new CustomException(ResultCode.SEARCH_ERROR.code, "当前为本地 Lucene 检索（search.engine=lucene），不支持" + feature);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "lucene";
+    }
+
+    // ---------------- 写入 ----------------
+
+    /**
+     * 新增 / 覆盖一条评论；失败只记录日志，不影响 ES 写入
+     */
+    public void index(CommentDocument doc) {
+        if (!isEnabled() || doc.getCid() == null) return;
+        try {
+            tenant(doc.getUuid(), true).writer().updateDocument(new Term("cid", doc.getCid()), toLucene(doc));
+        } catch (IOException | RuntimeException e) {
+            log.warn("⚠️ Lucene 索引写入失败：{} - {}", doc.getCid(), e.getMessage());
+        }
+    }
+
+    /**
+     * 局部更新：读出已存字段合并后整条覆盖；文档不存在时跳过（与 ES 的 404 一致）
+     */
+    public void update(String cid, String uuid, Map<String, Object> partial) {
+        if (!isEnabled()) return;
+        try {
+            Tenant tenant = tenant(uuid, false);
+            if (tenant == null) return;
+            CommentDocument doc = load(tenant, cid);
+            if (doc == null) {
+                // 同一批里刚写入、尚未 refresh 的文档
+                tenant.searcher().maybeRefreshBlocking();
+                doc = load(tenant, cid);
+            }
+            if (doc == null) return;
+            JSONObject json = (JSONObject) JSON.toJSON(doc);
+            json.putAll(partial);
+            tenant.writer().updateDocument(new Term("cid", cid), toLucene(json.to(CommentDocument.class)));
+        } catch (IOException | RuntimeException e) {
+            log.warn("⚠️ Lucene 索引更新失败：{} - {}", cid, e.getMessage());
+        }
+    }
+
+    /**
+     * 从头跑完的全量同步结束后调用：先落盘，再写回填标记
+     */
+    public void markBackfilled() {
+        if (!isEnabled()) return;
+        commit();
+        try {
+            Files.createDirectories(root);
+            Files.writeString(root.resolve(BACKFILL_MARKER), FORMAT);
+            if (!backfilled) log.info("✅ Lucene 索引已回填存量数据，可用于检索");
+            backfilled = true;
+        } catch (IOException e) {
+            log.warn("⚠️ Lucene 回填标记写入失败：{}", e.getMessage());
+        }
+    }
+
+    private CommentDocument load(Tenant tenant, String cid) throws IOException {
+        IndexSearcher searcher = tenant.searcher().acquire();
+        try {
+            TopDocs top = searcher.search(new TermQuery(new Term("cid", cid)), 1);
+            return top.scoreDocs.length == 0 ? null : fromLucene(searcher.storedFields().document(top.scoreDocs[0].doc));
+        } finally {
+            tenant.searcher().release(searcher);
+        }
+    }
+
+    private static Document toLucene(CommentDocument d) {
+        Document doc = new Document();
+        doc.add(new StringField("cid", d.getCid(), Field.Store.YES));
+        doc.add(new SortedDocValuesField("cid", new BytesRef(d.getCid())));
+        if (d.getPid() != null) doc.add(new StringField("pid", d.getPid(), Field.Store.YES));
+        if (d.getUuid() != null) doc.add(new StoredField("uuid", d.getUuid()));
+        if (d.getContent_clean() != null) doc.add(new TextField("content_clean", d.getContent_clean(), Field.Store.YES));
+        if (d.getUsername() != null) {
+            doc.add(new StoredField("username", d.getUsername()));
+            doc.add(new TextField("username_ngram", d.getUsername(), Field.Store.NO));
+        }
+        if (d.getSentiment_label() != null) {
+            doc.add(new IntPoint("sentiment_label", d.getSentiment_label()));
+            doc.add(new StoredField("sentiment_label", d.getSentiment_label()));
+        }
+        if (d.getLike_count() != null) {
+            doc.add(new IntPoint("like_count", d.getLike_count()));
+            doc.add(new StoredField("like_count", d.getLike_count()));
+        }
+        if (d.getComment_time() != null) {
+            doc.add(new StoredField("comment_time", d.getComment_time()));
+            LocalDateTime time = CommentTimeParser.parse(d.getComment_time());
+            if (time != null) {
+                long millis = time.atZone(ZONE).toInstant().toEpochMilli();
+                doc.add(new LongPoint("comment_time", millis));
+                doc.add(new NumericDocValuesField("comment_time", millis));
+            }
+        }
+        return doc;
+    }
+
+    private static CommentDocument fromLucene(Document doc) {
+        CommentDocument d = new CommentDocument();
+        d.setCid(doc.get("cid"));
+        d.setPid(doc.get("pid"));
+        d.setUuid(doc.get("uuid"));
+        d.setContent_clean(doc.get("content_clean"));
+        d.setUsername(doc.get("username"));
+        IndexableField sentiment = doc.getField("sentiment_label");
+        if (sentiment != null) d.setSentiment_label(sentiment.numericValue().intValue());
+        IndexableField like = doc.getField("like_count");
+        if (like != null) d.setLike_count(like.numericValue().intValue());
+        d.setComment_time(doc.get("comment_time"));
+        return d;
+    }
+
+    // ---------------- 检索 ----------------
+
+    @Override
+    public Map<String, Object> search(CommentSearchQuery q) {
+        if (!isEnabled()) throw new IllegalStateException("Lucene 检索未启用（search.lucene.enabled）");
+        if (!backfilled) {
+            if (isStandalone()) {
+                throw new CustomException(ResultCode.SEARCH_ERROR.code, "本地 Lucene 索引尚未回填，请先调用 /comment/sync?resume=false");
+            }
+            throw new IllegalStateException("Lucene 备用索引尚未回填存量数据");
+        }
+        if (q.page() < 0 || q.size() < 0) {
+            throw new CustomException(ResultCode.PARAM_ERROR.code, "page / size 不能为负数");
+        }
+        if ((long) (q.page() + 1) * q.size() > MAX_RESULT_WINDOW) {
+            throw new CustomException(ResultCode.PARAM_ERROR.code, "翻页超过 " + MAX_RESULT_WINDOW + " 条，请缩小检索范围");
+        }
+        if (q.facets()) {
+            throw new CustomException(ResultCode.SEARCH_ERROR.code, "当前由本地 Lucene 检索（ES 不可用），不支持统计");
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        List<Map<String, Object>> data = new ArrayList<>();
+        result.put("total", 0L);
+        result.put("data", data);
+        try {
+            List<Tenant> targets = targets(q.uuid());
+            if (targets.isEmpty()) return result;
+            Query query = buildQuery(q);
+            List<IndexSearcher> acquired = new ArrayList<>(targets.size());
+            try {
+                for (Tenant t : targets) acquired.add(t.searcher().acquire());
+                IndexSearcher searcher = acquired.size() == 1 ? acquired.get(0) : new IndexSearcher(new MultiReader(
+                        acquired.stream().map(IndexSearcher::getIndexReader).toArray(IndexReader[]::new), false));
+                result.put("total", (long) searcher.count(query));
+                if (q.size() == 0) return result;
+                int n = (q.page() + 1) * q.size();
+                TopDocs top = q.keyword() != null
+                        ? searcher.search(query, n)
+                        : searcher.search(query, n, new Sort(
+                                new SortField("comment_time", SortField.Type.LONG, true),
+                                new SortField("cid", SortField.Type.STRING, true)));
+                StoredFields stored = searcher.storedFields();
+                for (int i = q.page() * q.size(); i < top.scoreDocs.length; i++) {
+                    data.add(toRow(fromLucene(stored.document(top.scoreDocs[i].doc))));
+                }
+            } finally {
+                for (int i = 0; i < acquired.size(); i++) targets.get(i).searcher().release(acquired.get(i));
+            }
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lucene 查询失败：" + e.getMessage(), e);
+        }
+    }
+
+    Query buildQuery(CommentSearchQuery q) {
+        BooleanQuery.Builder bool = new BooleanQuery.Builder();
+        boolean any = false;
+        if (q.keyword() != null) {
+            // 与 ES match 相同：分词后任一词命中即可，按相关度打分
+            Query keyword = new QueryBuilder(analyzer).createBooleanQuery("content_clean", q.keyword());
+            if (keyword == null) return new MatchNoDocsQuery();
+            bool.add(keyword, BooleanClause.Occur.MUST);
+            any = true;
+        }
+        if (q.pid() != null) {
+            bool.add(new TermQuery(new Term("pid", q.pid())), BooleanClause.Occur.FILTER);
+            any = true;
+        }
+        if (q.username() != null) {
+            // 与 ES match_phrase 相同：切分结果连续出现，等价于 *name*
+            Query username = new QueryBuilder(analyzer).createPhraseQuery("username_ngram", q.username());
+            if (username == null) return new MatchNoDocsQuery();
+            bool.add(username, BooleanClause.Occur.FILTER);
+            any = true;
+        }
+        if (q.sentiment() != null) {
+            bool.add(IntPoint.newExactQuery("sentiment_label", q.sentiment()), BooleanClause.Occur.FILTER);
+            any = true;
+        }
+        if (q.likeFrom() != null || q.likeTo() != null) {
+            bool.add(IntPoint.newRangeQuery("like_count",
+                    q.likeFrom() != null ? q.likeFrom() : Integer.MIN_VALUE,
+                    q.likeTo() != null ? q.likeTo() : Integer.MAX_VALUE), BooleanClause.Occur.FILTER);
+            any = true;
+        }
+        if (q.startTime() != null || q.endTime() != null) {
+            bool.add(LongPoint.newRangeQuery("comment_time",
+                    q.startTime() != null ? toMillis(q.startTime(), false) : Long.MIN_VALUE,
+                    q.endTime() != null ? toMillis(q.endTime(), true) : Long.MAX_VALUE), BooleanClause.Occur.FILTER);
+            any = true;
+        }
+        return any ? bool.build() : new MatchAllDocsQuery();
+    }
+
+    // 与 ES 的 date 范围一致：只给日期时，下限取当天 0 点，上限取当天最后一毫秒
+    static long toMillis(String value, boolean upper) {
+        LocalDateTime time = CommentTimeParser.parse(value);
+        try {
+            if (time == null && value.trim().length() == 10) {
+                LocalDate date = LocalDate.parse(value.trim());
+                time = upper ? date.plusDays(1).atStartOfDay().minusNanos(1_000_000) : date.atStartOfDay();
+            } else if (time == null) {
+                time = LocalDateTime.parse(value.trim());
+            }
+        } catch (DateTimeParseException e) {
+            throw new CustomException(ResultCode.PARAM_ERROR.code, "时间格式应为 yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss：" + value);
+        }
+        return time.atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    private static Map<String, Object> toRow(CommentDocument doc) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("cid", doc.getCid());
+        map.put("pid", doc.getPid());
+        map.put("uuid", doc.getUuid());
+        map.put("username", doc.getUsername());
+        map.put("like_count", doc.getLike_count());
+        map.put("sentiment_label", doc.getSentiment_label());
+        map.put("comment_time", doc.getComment_time());
+        map.put("content_clean", doc.getContent_clean());
+        return map;
+    }
+
+    // ---------------- 租户索引 ----------------
+
+    // 要检索的租户索引：uuid 为空时与 ES 一致，检索全部租户
+    private List<Tenant> targets(String uuid) throws IOException {
+        if (uuid != null) {
+            Tenant tenant = tenant(uuid, false);
+            return tenant == null ? List.of() : List.of(tenant);
+        }
+        List<Tenant> all = new ArrayList<>();
+        if (!Files.isDirectory(root)) return all;
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+                all.add(open(dir.getFileName().toString(), true));
+            }
+        }
+        return all;
+    }
+
+    // create=false 时只打开磁盘上已有的索引，没有则返回 null
+    private Tenant tenant(String uuid, boolean create) throws IOException {
+        return open(dirName(uuid != null ? uuid : NO_TENANT), create);
+    }
+
+    private Tenant open(String name, boolean create) throws IOException {
+        Tenant tenant = tenants.get(name);
+        if (tenant != null) return tenant;
+        Path dir = root.resolve(name);
+        if (!create && !Files.isDirectory(dir)) return null;
+        try {
+            return tenants.computeIfAbsent(name, k -> {
+                try {
+                    return openDirectory(dir);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Tenant openDirectory(Path dir) throws IOException {
+        Directory directory = new MMapDirectory(dir);
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setRAMBufferSizeMB(ramBufferMb);
+        IndexWriter writer = new IndexWriter(directory, config);
+        log.info("📂 打开 Lucene 索引：{}（{} 条）", dir, writer.getDocStats().numDocs);
+        return new Tenant(directory, writer, new SearcherManager(writer, null));
+    }
+
+    // uuid 只含字母数字 / - / _ 时直接作目录名，否则转十六进制，避免路径穿越
+    private static String dirName(String key) {
+        if (key.matches("[A-Za-z0-9_-]+")) return key;
+        return "x" + HexFormat.of().formatHex(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 让新写入可被检索（近实时，与 ES refresh_interval 对应）
+     */
+    @Scheduled(fixedDelayString = "${search.lucene.refresh-interval-ms:1000}")
+    public void refresh() {
+        for (Map.Entry<String, Tenant> e : tenants.entrySet()) {
+            try {
+                e.getValue().searcher().maybeRefresh();
+            } catch (IOException | RuntimeException ex) {
+                log.warn("⚠️ Lucene 索引 refresh 失败：{} - {}", e.getKey(), ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 定时落盘；进程异常退出最多丢失一个周期的写入，可由全量同步补齐
+     */
+    @Scheduled(fixedDelayString = "${search.lucene.commit-interval-ms:30000}")
+    public void commit() {
+        for (Map.Entry<String, Tenant> e : tenants.entrySet()) {
+            try {
+                IndexWriter writer = e.getValue().writer();
+                if (writer.hasUncommittedChanges()) writer.commit();
+            } catch (IOException | RuntimeException ex) {
+                log.warn("⚠️ Lucene 索引提交失败：{} - {}", e.getKey(), ex.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Map.Entry<String, Tenant> e : tenants.entrySet()) {
+            Tenant tenant = e.getValue();
+            try {
+                tenant.searcher().close();
+                tenant.writer().close();
+                tenant.directory().close();
+            } catch (IOException | RuntimeException ex) {
+                log.warn("⚠️ Lucene 索引关闭失败：{} - {}", e.getKey(), ex.getMessage());
+            }
+        }
+        tenants.clear();
+    }
+}
@@ -33,6 +33,7 @@ public class ProjectService {
             case "成功" -> status = "success";
             case "失败" -> status = "fail";
             case "运行中" -> status = "running";
+            case "已取消" -> status = "cancelled";
         }
 
         return projectDao.selectByStatusAndUid(status, uuid);
@@ -69,6 +70,7 @@ public class ProjectService {
             case "成功" -> status = "success";
             case "失败" -> status = "fail";
             case "运行中" -> status = "running";
+            case "已取消" -> status = "cancelled";
         }
 
         return projectDao.selectByStatus(status);
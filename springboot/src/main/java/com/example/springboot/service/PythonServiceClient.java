@@ -0,0 +1,314 @@
+package com.example.springboot.service;
+
+import com.example.springboot.utils.CircuitBreaker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.*;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Python（Flask）服务的统一调用入口
+ * - 连接池 + keep-alive（HttpClient 5），所有调用共用
+ * - 按接口设置读超时（清洗 / 情感分析耗时长，图谱查询短）
+ * - 舱壁：限制同时在途的调用数，等不到名额直接失败
+ * - 重试：连接失败任何请求都重试；超时 / 502-504 只重试幂等请求；指数退避 + 抖动
+ * - 熔断：连续失败达到阈值后暂停调用，冷却后放行一个试探请求
+ * - 指标：python.client.requests{endpoint,outcome}、python.client.circuit.state、python.client.bulkhead.available
+ */
+@Slf4j
+@Service
+public class PythonServiceClient {
+
+    /**
+     * 按路径前缀区分的接口，用于超时配置与指标标签
+     */
+    public enum Endpoint {
+        CLEAN, SENTIMENT, GRAPH, FILE, DEFAULT;
+
+        static Endpoint of(String path) {
+            if (path.startsWith("/clean")) return CLEAN;
+            if (path.startsWith("/sentiment")) return SENTIMENT;
+            if (path.startsWith("/graph")) return GRAPH;
+            if (path.startsWith("/uploads")) return FILE;
+            return DEFAULT;
+        }
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${python-service.base-url:http://127.0.0.1:5001}")
+    private String baseUrl;
+
+    @Value("${python-service.max-connections:20}")
+    private int maxConnections;
+
+    @Value("${python-service.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${python-service.read-timeout-seconds.default:30}")
+    private long defaultReadTimeout;
+
+    @Value("${python-service.read-timeout-seconds.clean:600}")
+    private long cleanReadTimeout;
+
+    @Value("${python-service.read-timeout-seconds.sentiment:600}")
+    private long sentimentReadTimeout;
+
+    @Value("${python-service.read-timeout-seconds.graph:120}")
+    private long graphReadTimeout;
+
+    @Value("${python-service.read-timeout-seconds.file:600}")
+    private long fileReadTimeout;
+
+    @Value("${python-service.max-concurrent:8}")
+    private int maxConcurrent;
+
+    @Value("${python-service.acquire-timeout-ms:5000}")
+    private long acquireTimeoutMs;
+
+    @Value("${python-service.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${python-service.retry.backoff-ms:200}")
+    private long backoffMs;
+
+    @Value("${python-service.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${python-service.circuit.open-seconds:30}")
+    private long openSeconds;
+
+    private CloseableHttpClient httpClient;
+    private RestTemplate restTemplate;
+    private Semaphore bulkhead;
+    private CircuitBreaker breaker;
+    private final Map<Endpoint, RequestConfig> requestConfigs = new EnumMap<>(Endpoint.class);
+
+    @PostConstruct
+    public void init() {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                // 重试由本类统一控制
+                .disableAutomaticRetries()
+                .build();
+
+        for (Endpoint endpoint : Endpoint.values()) {
+            requestConfigs.put(endpoint, RequestConfig.custom()
+                    .setConnectionRequestTimeout(Timeout.ofMilliseconds(acquireTimeoutMs))
+                    .setResponseTimeout(Timeout.ofSeconds(readTimeoutSeconds(endpoint)))
+                    .build());
+        }
+
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        factory.setHttpContextFactory((method, uri) -> {
+            HttpClientContext context = HttpClientContext.create();
+            context.setRequestConfig(requestConfigs.get(Endpoint.of(uri.getPath())));
+            return context;
+        });
+        restTemplate = new RestTemplate(factory);
+
+        bulkhead = new Semaphore(maxConcurrent);
+        breaker = new CircuitBreaker(failureThreshold, TimeUnit.SECONDS.toMillis(openSeconds));
+
+        Gauge.builder("python.client.circuit.state", breaker, b -> b.getState().ordinal())
+                .description("Python 服务熔断状态：0=关闭 1=打开 2=半开")
+                .register(meterRegistry);
+        Gauge.builder("python.client.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Python 服务剩余并发名额")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Flask 输出文件（相对路径，如 uploads/xx/cleaned_xx.csv）的下载地址
+     */
+    public String fileUrl(String relativePath) {
+        return baseUrl + "/" + relativePath.replace("\\", "/");
+    }
+
+    // ---------------------- 调用入口 ----------------------
+
+    public String get(String pathAndQuery) {
+        return execute(HttpMethod.GET, pathAndQuery, null, stringExtractor(), true);
+    }
+
+    public String postJson(String path, Object body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<Object> entity = new HttpEntity<>(body, headers);
+        return execute(HttpMethod.POST, path, restTemplate.httpEntityCallback(entity, String.class),
+                stringExtractor(), false);
+    }
+
+    /**
+     * multipart 上传，响应体由 extractor 流式处理
+     */
+    public <T> T postMultipart(String path, MultiValueMap<String, Object> body, ResponseExtractor<T> extractor) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        HttpEntity<MultiValueMap<String, Object>> entity = new HttpEntity<>(body, headers);
+        return execute(HttpMethod.POST, path, restTemplate.httpEntityCallback(entity, String.class),
+                extractor, false);
+    }
+
+    /**
+     * 流式下载 Flask 输出文件；extractor 边读边处理，读到一半失败时不重试，避免重复消费
+     */
+    public <T> T download(String relativePath, ResponseExtractor<T> extractor) {
+        return execute(HttpMethod.GET, "/" + relativePath.replace("\\", "/"), null, extractor, false);
+    }
+
+    private ResponseExtractor<String> stringExtractor() {
+        return new HttpMessageConverterExtractor<>(String.class, restTemplate.getMessageConverters());
+    }
+
+    private <T> T execute(HttpMethod method, String path, RequestCallback callback,
+                          ResponseExtractor<T> extractor, boolean idempotent) {
+        Endpoint endpoint = Endpoint.of(path);
+        for (int attempt = 1; ; attempt++) {
+            if (!breaker.tryAcquire()) {
+                record(endpoint, "circuit_open", 0);
+                throw new ResourceAccessException("Python 服务熔断中，暂停调用：" + path);
+            }
+            if (!acquireBulkhead()) {
+                breaker.release();
+                record(endpoint, "rejected", 0);
+                throw new ResourceAccessException("Python 服务并发已满：" + path);
+            }
+
+            long start = System.nanoTime();
+            try {
+                T result = restTemplate.execute(baseUrl + path, method, callback, extractor);
+                breaker.onSuccess();
+                record(endpoint, "success", System.nanoTime() - start);
+                return result;
+            } catch (HttpClientErrorException e) {
+                // 4xx：服务本身可用，不计入熔断
+                breaker.onSuccess();
+                record(endpoint, "client_error", System.nanoTime() - start);
+                throw e;
+            } catch (RestClientException e) {
+                breaker.onFailure();
+                record(endpoint, "error", System.nanoTime() - start);
+                if (attempt >= maxAttempts || !retryable(e, idempotent)) throw e;
+
+                long delay = backoffMs * (1L << (attempt - 1));
+                delay += ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+                log.warn("⚠️ 调用 Python 服务失败（第 {} 次），{} ms 后重试：{} - {}", attempt, delay, path, e.getMessage());
+                sleep(delay);
+            } catch (RuntimeException e) {
+                // 响应处理方主动中断（如任务取消），不计成功 / 失败
+                breaker.release();
+                throw e;
+            } finally {
+                bulkhead.release();
+            }
+        }
+    }
+
+    private boolean acquireBulkhead() {
+        try {
+            return bulkhead.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 连接失败（请求未发出）总是可重试；超时与 502/503/504 只对幂等请求重试
+     */
+    private static boolean retryable(RestClientException e, boolean idempotent) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConnectException) return true;
+        }
+        if (!idempotent) return false;
+        if (e instanceof HttpServerErrorException se) {
+            HttpStatus status = HttpStatus.resolve(se.getStatusCode().value());
+            return status == HttpStatus.BAD_GATEWAY || status == HttpStatus.SERVICE_UNAVAILABLE
+                    || status == HttpStatus.GATEWAY_TIMEOUT;
+        }
+        return e instanceof ResourceAccessException;
+    }
+
+    private void record(Endpoint endpoint, String outcome, long nanos) {
+        Timer.builder("python.client.requests")
+                .tag("endpoint", endpoint.tag())
+                .tag("outcome", outcome)
+                .description("Python 服务调用耗时")
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private long readTimeoutSeconds(Endpoint endpoint) {
+        return switch (endpoint) {
+            case CLEAN -> cleanReadTimeout;
+            case SENTIMENT -> sentimentReadTimeout;
+            case GRAPH -> graphReadTimeout;
+            case FILE -> fileReadTimeout;
+            default -> defaultReadTimeout;
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("重试等待被中断");
+        }
+    }
+}
@@ -2,13 +2,12 @@ package com.example.springboot.service.impl;
 
 import com.example.springboot.dao.VisualizationDao;
 import com.example.springboot.service.VisualizationService;
+import com.example.springboot.utils.KeywordExtractor;
 import jakarta.annotation.Resource;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
@@ -60,25 +59,10 @@ public class VisualizationServiceImpl implements VisualizationService {
         List<String> texts = visualizationDao.selectRecentCommentTexts(pid, 3000);
         if (texts == null || texts.isEmpty()) return Collections.emptyList();
 
-        Pattern zh = Pattern.compile("[\\u4e00-\\u9fa5]{2,6}");
-        Pattern en = Pattern.compile("[A-Za-z0-9_]{2,}");
-        Set<String> stop = new HashSet<>(Arrays.asList(
-                "我们","你们","他们","这个","那个","就是","以及","还有","的话","感觉",
-                "真的","非常","然后","但是","所以","而且","如果","开始","已经","可以","不会","没有"
-        ));
-
         Map<String, Integer> freq = new HashMap<>();
         for (String t : texts) {
-            if (t == null) continue;
-            Matcher m1 = zh.matcher(t);
-            while (m1.find()) {
-                String w = m1.group();
-                if (!stop.contains(w)) freq.merge(w, 1, Integer::sum);
-            }
-            Matcher m2 = en.matcher(t.toLowerCase());
-            while (m2.find()) {
-                String w = m2.group();
-                if (!stop.contains(w)) freq.merge(w, 1, Integer::sum);
+            for (String w : KeywordExtractor.extract(t)) {
+                freq.merge(w, 1, Integer::sum);
             }
         }
 
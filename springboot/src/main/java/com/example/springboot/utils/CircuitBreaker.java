@@ -0,0 +1,77 @@
+package com.example.springboot.utils;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 熔断器（按连续失败次数）
+ * CLOSED --连续失败达到阈值--> OPEN --冷却期结束--> HALF_OPEN（只放行一个试探请求）
+ * 试探成功回到 CLOSED，失败重新 OPEN
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, System::currentTimeMillis);
+    }
+
+    public CircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * 是否放行本次请求；放行后必须调用 onSuccess / onFailure / release 之一
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openedAt < openMillis) return false;
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) return false;
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+            failures = 0;
+        }
+    }
+
+    /**
+     * 放行后请求未真正发出（如被舱壁拒绝），归还试探名额，不计成功 / 失败
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.springboot.utils;
+
+import com.example.springboot.entity.Comment;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * Java 版评论清洗引擎（与 Flask /clean 的清洗选项对应）
+ * - 每个选项是一条行变换规则（返回 null 表示丢弃该行），按固定顺序组合：
+ *   填充默认值 -> 去除链接 -> 去除表情 -> 网络用语替换 -> 空白规范化 -> 删除缺失行 -> 长度过滤 -> 删除重复行
+ * - 行变换规则无共享可变状态，整块清洗时可并行执行；删除重复行在其后按原顺序串行判断，保留第一次出现的行
+ * - 清洗结果是原始评论的副本：clean_status = cleaned，cid 每次上传随机生成，
+ *   实例内记录 原 cid -> 清洗 cid，parent_cid 按同一映射转换，回复关系保持（一个实例只用于一次上传）
+ * - 箱型图检测 / 3σ检测 / 日期标准化：与 Flask 实现一致不改变数据（时间在解析时已统一为 LocalDateTime）
+ * 与 data_cleaning.py 的差异：
+ * - 删除缺失行：Flask 的 dropna 实际只会删掉时间为空的行（用户名 / 内容经 safe_str 已是空串），
+ *   这里同时删除用户名或内容为空白的行
+ * - 删除重复行：Flask 的 drop_duplicates 比较包括 cid 在内的全部列，而 cid 逐行随机生成，实际不会删除任何行；
+ *   这里按 用户名 + 内容 + 时间 + 评论类型 判断重复
+ */
+public class CommentCleaner {
+
+    public static final String DROP_MISSING = "删除缺失行";
+    public static final String FILL_DEFAULT = "填充默认值";
+    public static final String DROP_DUPLICATE = "删除重复行";
+    public static final String REPLACE_SLANG = "网络用语替换";
+    public static final String STRIP_URL = "去除链接";
+    public static final String STRIP_EMOJI = "去除表情";
+    public static final String NORMALIZE_SPACE = "空白规范化";
+    public static final String LENGTH_FILTER = "长度过滤";
+
+    // 与 data_cleaning.py 中的网络用语表保持一致（按插入顺序替换）
+    public static final Map<String, String> SLANG = new LinkedHashMap<>();
+
+    static {
+        SLANG.put("yyds", "永远的神");
+        SLANG.put("dbq", "对不起");
+        SLANG.put("awsl", "啊我死了");
+        SLANG.put("xswl", "笑死我了");
+        SLANG.put("233", "哈哈哈");
+    }
+
+    private static final Pattern URL = Pattern.compile("(?i)(https?://|www\\.)[^\\s\\u3000，。！？]+");
+    private static final String DEFAULT_TEXT = "未知";
+
+    // 块大小达到该值才并行，小块并行的调度开销大于收益
+    private static final int PARALLEL_THRESHOLD = 2048;
+
+    private final List<UnaryOperator<Comment>> rules = new ArrayList<>();
+    // 删除重复行：已保留行的指纹，只在清洗阶段线程中按顺序访问
+    private final LongHashSet seen;
+    // 原 cid -> 清洗 cid；父评论可能在更晚的块里出现，并行清洗时也会访问
+    private final Map<String, String> cidMapping = new ConcurrentHashMap<>();
+
+    /**
+     * @param options     前端清洗选项（如 "删除缺失行"、"网络用语替换"）
+     * @param keepEmojis  去除表情时保留的表情（emoji_map.json 中带情感权重的表情）
+     * @param minLength   长度过滤下限（按码点计）
+     * @param maxLength   长度过滤上限（按码点计）
+     */
+    public CommentCleaner(Collection<String> options, Collection<String> keepEmojis, int minLength, int maxLength) {
+        Set<String> opts = new HashSet<>(options);
+
+        if (opts.contains(FILL_DEFAULT) && !opts.contains(DROP_MISSING)) {
+            rules.add(CommentCleaner::fillDefault);
+        }
+        if (opts.contains(STRIP_URL)) {
+            rules.add(content(s -> URL.matcher(s).replaceAll("")));
+        }
+        if (opts.contains(STRIP_EMOJI)) {
+            List<String> keep = new ArrayList<>(keepEmojis);
+            // 长的先匹配（"❤️" 先于 "❤"）
+            keep.sort(Comparator.comparingInt(String::length).reversed());
+            rules.add(content(s -> stripEmoji(s, keep)));
+        }
+        if (opts.contains(REPLACE_SLANG)) {
+            rules.add(content(CommentCleaner::replaceSlang));
+        }
+        if (opts.contains(NORMALIZE_SPACE)) {
+            rules.add(content(CommentCleaner::normalizeSpace));
+        }
+        if (opts.contains(DROP_MISSING)) {
+            rules.add(c -> isBlank(c.getContent()) || isBlank(c.getUsername()) || c.getCommentTime() == null ? null : c);
+        }
+        if (opts.contains(LENGTH_FILTER)) {
+            rules.add(c -> {
+                String s = c.getContent() == null ? "" : c.getContent();
+                int len = s.codePointCount(0, s.length());
+                return len < minLength || len > maxLength ? null : c;
+            });
+        }
+        seen = opts.contains(DROP_DUPLICATE) ? new LongHashSet(64 * 1024) : null;
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty() && seen == null;
+    }
+
+    /**
+     * 清洗一条原始评论，返回清洗后的副本；被规则丢弃时返回 null
+     */
+    public Comment clean(Comment raw) {
+        Comment c = transform(raw);
+        return c != null && isFirst(c) ? c : null;
+    }
+
+    /**
+     * 整块清洗，保持原顺序；大块的行变换并行执行，删除重复行按原顺序判断
+     */
+    public List<Comment> cleanChunk(List<Comment> chunk) {
+        List<Comment> transformed = chunk.size() >= PARALLEL_THRESHOLD
+                ? chunk.parallelStream().map(this::transform).toList()
+                : chunk.stream().map(this::transform).toList();
+        List<Comment> result = new ArrayList<>(chunk.size());
+        for (Comment c : transformed) {
+            if (c != null && isFirst(c)) result.add(c);
+        }
+        return result;
+    }
+
+    /**
+     * 清洗结果编号：同一实例内同一原 cid 始终对应同一个随机编号，父子评论转换后仍对应
+     */
+    private String cleanedCid(String rawCid) {
+        return cidMapping.computeIfAbsent(rawCid, k -> UUID.randomUUID().toString());
+    }
+
+    private Comment transform(Comment raw) {
+        Comment c = copyAsCleaned(raw);
+        for (UnaryOperator<Comment> rule : rules) {
+            c = rule.apply(c);
+            if (c == null) return null;
+        }
+        return c;
+    }
+
+    private boolean isFirst(Comment c) {
+        return seen == null || seen.add(rowHash(c));
+    }
+
+    // ---------------------- 规则实现 ----------------------
+
+    private static UnaryOperator<Comment> content(UnaryOperator<String> fn) {
+        return c -> {
+            if (c.getContent() != null && !c.getContent().isEmpty()) {
+                c.setContent(fn.apply(c.getContent()));
+            }
+            return c;
+        };
+    }
+
+    private static Comment fillDefault(Comment c) {
+        if (isBlank(c.getUsername())) c.setUsername(DEFAULT_TEXT);
+        if (isBlank(c.getContent())) c.setContent(DEFAULT_TEXT);
+        if (c.getLikeCount() == null) c.setLikeCount(0);
+        if (c.getReplyCount() == null) c.setReplyCount(0);
+        return c;
+    }
+
+    static String replaceSlang(String s) {
+        for (Map.Entry<String, String> e : SLANG.entrySet()) {
+            if (s.contains(e.getKey())) s = s.replace(e.getKey(), e.getValue());
+        }
+        return s;
+    }
+
+    static String normalizeSpace(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean space = false;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (Character.isWhitespace(ch) || ch == '\u3000' || ch == '\u00A0') {
+                space = sb.length() > 0;
+            } else {
+                if (space) sb.append(' ');
+                space = false;
+                sb.append(ch);
+            }
+        }
+        return sb.toString();
+    }
+
+    static String stripEmoji(String s, List<String> keep) {
+        StringBuilder sb = null;
+        int i = 0;
+        outer:
+        while (i < s.length()) {
+            for (String k : keep) {
+                if (s.startsWith(k, i)) {
+                    if (sb != null) sb.append(k);
+                    i += k.length();
+                    continue outer;
+                }
+            }
+            int cp = s.codePointAt(i);
+            int n = Character.charCount(cp);
+            if (isEmoji(cp)) {
+                if (sb == null) sb = new StringBuilder(s.length()).append(s, 0, i);
+            } else if (sb != null) {
+                sb.appendCodePoint(cp);
+            }
+            i += n;
+        }
+        return sb == null ? s : sb.toString();
+    }
+
+    static boolean isEmoji(int cp) {
+        return (cp >= 0x1F000 && cp <= 0x1FAFF)    // 表情、符号、国旗、扩展表情
+                || (cp >= 0x2600 && cp <= 0x27BF)  // 杂项符号、装饰符号
+                || (cp >= 0x2B00 && cp <= 0x2BFF)  // 箭头、星形
+                || cp == 0xFE0F || cp == 0x200D;   // 变体选择符、零宽连接符
+    }
+
+    private static long rowHash(Comment c) {
+        return CommentFingerprint.of(c.getUsername(),
+                c.getContent() + '\u0000' + c.getCommentTime() + '\u0000' + c.getCommentType(), "cleaned");
+    }
+
+    private Comment copyAsCleaned(Comment raw) {
+        Comment c = new Comment();
+        c.setCid(cleanedCid(raw.getCid()));
+        c.setParentCid(raw.getParentCid() == null ? null : cleanedCid(raw.getParentCid()));
+        c.setPid(raw.getPid());
+        c.setContent(raw.getContent());
+        c.setUsername(raw.getUsername());
+        c.setCommentTime(raw.getCommentTime());
+        c.setLikeCount(raw.getLikeCount());
+        c.setReplyCount(raw.getReplyCount());
+        c.setCommentType(raw.getCommentType());
+        c.setAbnormal(raw.getAbnormal());
+        c.setCleanStatus("cleaned");
+        return c;
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.springboot.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 评论去重指纹：(username, content, clean_status) -> 60 位整数
+ * 取 MD5 前 60 位，与数据库生成列 comment.content_hash 的 SQL 表达式逐字节一致，
+ * 因此 Java 侧算出的指纹可以直接用 content_hash 索引查重
+ */
+public final class CommentFingerprint {
+
+    /**
+     * comment.content_hash 生成列表达式（DatabaseSchemaInitializer 建列时使用）
+     */
+    public static final String SQL_EXPRESSION =
+            "CAST(CONV(LEFT(MD5(CONCAT_WS(CHAR(0), IFNULL(username, ''), IFNULL(content, ''), clean_status)), 15), 16, 10) AS SIGNED)";
+
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private CommentFingerprint() {
+    }
+
+    public static long of(String username, String content, String cleanStatus) {
+        MessageDigest md = MD5.get();
+        md.reset();
+        md.update(bytes(username));
+        md.update((byte) 0);
+        md.update(bytes(content));
+        // CONCAT_WS 跳过 NULL 参数（连同分隔符）；username / content 在 SQL 里已 IFNULL 成空串
+        if (cleanStatus != null) {
+            md.update((byte) 0);
+            md.update(bytes(cleanStatus));
+        }
+        byte[] d = md.digest();
+
+        long h = 0;
+        for (int i = 0; i < 8; i++) {
+            h = (h << 8) | (d[i] & 0xff);
+        }
+        // 前 15 个十六进制位 = 高 60 位
+        return h >>> 4;
+    }
+
+    /**
+     * 评论编号的 64 位指纹（FNV-1a + fmix64），用于入库过程中的父评论集合
+     */
+    public static long ofCid(String cid) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < cid.length(); i++) {
+            h ^= cid.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.springboot.utils;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * 评论时间解析（yyyy-MM-dd HH:mm:ss）
+ * - 标准 19 位格式走逐字符快速路径，不经过 DateTimeFormatter
+ * - 其余情况退回缓存的 DateTimeFormatter
+ */
+public final class CommentTimeParser {
+
+    public static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private CommentTimeParser() {
+    }
+
+    /**
+     * 解析失败返回 null
+     */
+    public static LocalDateTime parse(String s) {
+        if (s == null) return null;
+        s = s.trim();
+        if (s.length() == 19
+                && s.charAt(4) == '-' && s.charAt(7) == '-' && s.charAt(10) == ' '
+                && s.charAt(13) == ':' && s.charAt(16) == ':') {
+            int year = digits(s, 0, 4);
+            int month = digits(s, 5, 7);
+            int day = digits(s, 8, 10);
+            int hour = digits(s, 11, 13);
+            int minute = digits(s, 14, 16);
+            int second = digits(s, 17, 19);
+            if ((year | month | day | hour | minute | second) >= 0) {
+                try {
+                    return LocalDateTime.of(year, month, day, hour, minute, second);
+                } catch (DateTimeException e) {
+                    return null;
+                }
+            }
+        }
+        try {
+            return LocalDateTime.parse(s, FORMATTER);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 解析失败时回退为当前时间（与原解析逻辑保持一致）
+     */
+    public static LocalDateTime parseOrNow(String s) {
+        LocalDateTime time = parse(s);
+        return time != null ? time : LocalDateTime.now();
+    }
+
+    // 非数字返回 -1
+    private static int digits(String s, int from, int to) {
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.springboot.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 流式 CSV 读取器（RFC-4180）
+ * - 基于 char 缓冲区的状态机，支持引号转义（""）与引号内换行
+ * - 行缓冲（String[] / StringBuilder）全程复用，不整体加载文件
+ * - 自动跳过 UTF-8 BOM（兼容 Excel / pandas utf-8-sig 导出）
+ */
+public class CsvStreamReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char delimiter;
+
+    private final char[] buf = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private boolean started;
+
+    // 复用的行缓冲
+    private final StringBuilder field = new StringBuilder(256);
+    private String[] row = new String[16];
+    private int size;
+
+    /**
+     * 行回调：fields 数组会被复用，回调内不要持有它的引用
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        void onRow(String[] fields, int size, long rowNum);
+    }
+
+    public CsvStreamReader(Reader reader) {
+        this(reader, ',');
+    }
+
+    public CsvStreamReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    public static CsvStreamReader open(File file) throws IOException {
+        return new CsvStreamReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 逐行读取并回调，返回总行数（含表头）
+     */
+    public long read(RowHandler handler) throws IOException {
+        long rowNum = 0;
+        while (nextRow()) {
+            handler.onRow(row, size, rowNum++);
+        }
+        return rowNum;
+    }
+
+    /**
+     * 读取下一行到行缓冲，文件结束返回 false
+     */
+    private boolean nextRow() throws IOException {
+        size = 0;
+        field.setLength(0);
+        boolean inQuotes = false;
+        boolean quoted = false;
+        boolean any = false;
+
+        while (true) {
+            if (pos >= limit && !fill()) {
+                if (!any) return false;
+                endField();
+                return true;
+            }
+            any = true;
+
+            if (inQuotes) {
+                // 引号内：成段拷贝直到下一个引号
+                int start = pos;
+                while (pos < limit && buf[pos] != '"') pos++;
+                if (pos > start) field.append(buf, start, pos - start);
+                if (pos >= limit) continue;
+
+                pos++;
+                if (pos >= limit && !fill()) {
+                    inQuotes = false;
+                    continue;
+                }
+                if (buf[pos] == '"') {
+                    field.append('"');
+                    pos++;
+                } else {
+                    inQuotes = false;
+                }
+                continue;
+            }
+
+            // 引号外：成段拷贝直到分隔符 / 引号 / 换行
+            int start = pos;
+            char ch = 0;
+            while (pos < limit) {
+                ch = buf[pos];
+                if (ch == delimiter || ch == '"' || ch == '\n' || ch == '\r') break;
+                pos++;
+            }
+            if (pos > start) field.append(buf, start, pos - start);
+            if (pos >= limit) continue;
+
+            pos++;
+            if (ch == delimiter) {
+                endField();
+                quoted = false;
+            } else if (ch == '\n') {
+                endField();
+                return true;
+            } else if (ch == '\r') {
+                if (pos >= limit) fill();
+                if (pos < limit && buf[pos] == '\n') pos++;
+                endField();
+                return true;
+            } else if (field.length() == 0 && !quoted) {
+                inQuotes = true;
+                quoted = true;
+            } else {
+                // 非法位置的引号按普通字符处理（宽松模式）
+                field.append('"');
+            }
+        }
+    }
+
+    private void endField() {
+        if (size == row.length) {
+            String[] grown = new String[row.length * 2];
+            System.arraycopy(row, 0, grown, 0, row.length);
+            row = grown;
+        }
+        row[size++] = field.toString();
+        field.setLength(0);
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        do {
+            n = reader.read(buf, 0, buf.length);
+            pos = 0;
+            limit = Math.max(n, 0);
+            if (!started && limit > 0) {
+                started = true;
+                if (buf[0] == '\uFEFF') pos = 1;
+            }
+        } while (n > 0 && pos >= limit);
+        return pos < limit;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.springboot.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 流式 CSV 写出器（RFC-4180，与 CsvStreamReader 对应）
+ * - 含分隔符 / 引号 / 换行的字段加引号，内部引号写成 ""，行尾 CRLF
+ * - 可选写 UTF-8 BOM，Excel 直接打开不乱码
+ * - 以 = + - @ 或制表符 / 回车开头的字段前加 '，避免 Excel 当作公式执行（评论内容来自外部用户）
+ */
+public class CsvStreamWriter implements Closeable, Flushable {
+
+    private final Writer writer;
+    private final char delimiter;
+
+    public CsvStreamWriter(Writer writer) {
+        this(writer, ',');
+    }
+
+    public CsvStreamWriter(Writer writer, char delimiter) {
+        this.writer = writer;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * UTF-8 输出，带 BOM
+     */
+    public static CsvStreamWriter excelUtf8(OutputStream out) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        w.write('\uFEFF');
+        return new CsvStreamWriter(w);
+    }
+
+    public void writeRow(Object... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) writer.write(delimiter);
+            if (fields[i] != null) writeField(String.valueOf(fields[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeField(String value) throws IOException {
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0 && !isNumber(value)) {
+            value = "'" + value;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == delimiter || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') writer.write('"');
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    // 负数（如情感标签 -1）照常输出
+    private static boolean isNumber(String value) {
+        if (value.length() < 2 || value.charAt(0) != '-') return false;
+        for (int i = 1; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && c != '.') return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.springboot.utils;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 评论关键词抽取（中文 2~6 连续字 + 英数词，去停用词）
+ * - extract：热门关键词统计，长的连续汉字按 6 字贪婪切段
+ * - suggestInputs：检索联想（keyword_suggest 补全字段）的输入，只取完整的短片段
+ */
+public class KeywordExtractor {
+
+    private static final Pattern ZH = Pattern.compile("[\\u4e00-\\u9fa5]{2,6}");
+    // 一段完整的连续汉字（前后不是汉字）
+    private static final Pattern ZH_RUN = Pattern.compile("[\\u4e00-\\u9fa5]+");
+    private static final int MAX_ZH_LENGTH = 6;
+    private static final Pattern EN = Pattern.compile("[A-Za-z0-9_]{2,}");
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "我们","你们","他们","这个","那个","就是","以及","还有","的话","感觉",
+            "真的","非常","然后","但是","所以","而且","如果","开始","已经","可以","不会","没有"
+    ));
+
+    private KeywordExtractor() {
+    }
+
+    /**
+     * 按出现顺序返回全部关键词（含重复），英文转小写
+     */
+    public static List<String> extract(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null || text.isEmpty()) return words;
+        Matcher zh = ZH.matcher(text);
+        while (zh.find()) {
+            String w = zh.group();
+            if (!STOP_WORDS.contains(w)) words.add(w);
+        }
+        Matcher en = EN.matcher(text.toLowerCase());
+        while (en.find()) {
+            String w = en.group();
+            if (!STOP_WORDS.contains(w)) words.add(w);
+        }
+        return words;
+    }
+
+    /**
+     * 联想输入：去重后的前 limit 个关键词
+     * 中文只取 2~6 字的完整片段（被标点、空格、英文隔开的短语）；更长的连续汉字是整句，
+     * 按 6 字切出的多是半截词，作为补全候选没有意义，直接跳过
+     */
+    public static List<String> suggestInputs(String text, int limit) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text == null || text.isEmpty()) return new ArrayList<>(words);
+        Matcher zh = ZH_RUN.matcher(text);
+        while (zh.find() && words.size() < limit) {
+            String w = zh.group();
+            if (w.length() <= MAX_ZH_LENGTH && w.length() >= 2 && !STOP_WORDS.contains(w)) words.add(w);
+        }
+        Matcher en = EN.matcher(text.toLowerCase());
+        while (en.find() && words.size() < limit) {
+            String w = en.group();
+            if (!STOP_WORDS.contains(w)) words.add(w);
+        }
+        return new ArrayList<>(words);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.springboot.utils;
+
+/**
+ * long 原始类型哈希集合（开放寻址 + 线性探测）
+ * 每个元素只占 8 字节，没有装箱与 Entry 对象；只支持新增与查询
+ */
+public class LongHashSet {
+
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+    private int mask;
+    private int size;
+    private boolean hasZero;
+
+    public LongHashSet() {
+        this(1024);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        table = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * 新增元素，已存在返回 false
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int i = slot(value);
+        long cur;
+        while ((cur = table[i]) != EMPTY) {
+            if (cur == value) return false;
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        size++;
+        // 负载因子 0.5
+        if (size * 2 > table.length) rehash();
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) return hasZero;
+        int i = slot(value);
+        long cur;
+        while ((cur = table[i]) != EMPTY) {
+            if (cur == value) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slot(long value) {
+        // murmur3 fmix64，打散低位
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        return (int) value & mask;
+    }
+
+    private void rehash() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        mask = table.length - 1;
+        for (long v : old) {
+            if (v == EMPTY) continue;
+            int i = slot(v);
+            while (table[i] != EMPTY) i = (i + 1) & mask;
+            table[i] = v;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.springboot.utils;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 流式 XLSX 读取器（POI event / SAX 模型）
+ * - 不构建 XSSFWorkbook DOM，只在内存中保留共享字符串表与样式表
+ * - 单元格按 DataFormatter 渲染为文本，与 DOM 解析时的结果一致
+ * - 可选多工作表并行解析：共享字符串/样式只加载一次，各线程独立打开 sheet 流
+ */
+public final class XlsxStreamReader {
+
+    /**
+     * 行回调：cells 数组按工作表复用，缺失单元格为 ""
+     * 并行解析多个工作表时会被多个线程同时调用，实现需自行保证线程安全
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        void onRow(int sheetIndex, int rowNum, String[] cells, int size);
+    }
+
+    private XlsxStreamReader() {
+    }
+
+    /**
+     * 解析工作簿
+     * @param allSheets   false 时只解析第一个工作表
+     * @param parallelism 多工作表时的并行线程数（<=1 为串行）
+     */
+    public static void read(File file, boolean allSheets, int parallelism, RowHandler handler) throws Exception {
+        OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ);
+        try {
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            XSSFReader reader = new XSSFReader(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            int sheetCount = countSheets(reader);
+            int sheets = allSheets ? sheetCount : Math.min(1, sheetCount);
+
+            if (sheets <= 1 || parallelism <= 1) {
+                Iterator<InputStream> it = reader.getSheetsData();
+                for (int i = 0; i < sheets && it.hasNext(); i++) {
+                    try (InputStream in = it.next()) {
+                        parseSheet(in, i, styles, strings, handler);
+                    }
+                }
+                return;
+            }
+
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, sheets));
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < sheets; i++) {
+                    int sheetIndex = i;
+                    futures.add(pool.submit(() -> {
+                        readSheetInOwnPackage(file, sheetIndex, styles, strings, handler);
+                        return null;
+                    }));
+                }
+                for (Future<?> f : futures) {
+                    try {
+                        f.get();
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof Exception ex) throw ex;
+                        throw new IOException(cause);
+                    }
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    /**
+     * 并行模式：每个线程独立打开一次 package，只取自己的 sheet 流
+     */
+    private static void readSheetInOwnPackage(File file, int sheetIndex, StylesTable styles,
+                                              ReadOnlySharedStringsTable strings, RowHandler handler) throws Exception {
+        OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ);
+        try {
+            Iterator<InputStream> it = new XSSFReader(pkg).getSheetsData();
+            for (int i = 0; it.hasNext(); i++) {
+                try (InputStream in = it.next()) {
+                    if (i == sheetIndex) {
+                        parseSheet(in, sheetIndex, styles, strings, handler);
+                        return;
+                    }
+                }
+            }
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    private static int countSheets(XSSFReader reader) throws Exception {
+        int count = 0;
+        Iterator<InputStream> it = reader.getSheetsData();
+        while (it.hasNext()) {
+            it.next().close();
+            count++;
+        }
+        return count;
+    }
+
+    private static void parseSheet(InputStream in, int sheetIndex, StylesTable styles,
+                                   ReadOnlySharedStringsTable strings, RowHandler handler) throws Exception {
+        XMLReader parser = XMLHelper.newXMLReader();
+        // DataFormatter 非线程安全，每个工作表一个
+        parser.setContentHandler(new XSSFSheetXMLHandler(
+                styles, strings, new RowCollector(sheetIndex, handler), new DataFormatter(), false));
+        parser.parse(new InputSource(in));
+    }
+
+    /**
+     * 把 SAX 单元格事件还原为按列下标排列的行
+     */
+    private static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final int sheetIndex;
+        private final RowHandler handler;
+        private String[] cells = new String[32];
+        private int size;
+
+        RowCollector(int sheetIndex, RowHandler handler) {
+            this.sheetIndex = sheetIndex;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            size = 0;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            handler.onRow(sheetIndex, rowNum, cells, size);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int col = cellReference == null ? size : columnIndex(cellReference);
+            if (col >= cells.length) {
+                String[] grown = new String[Math.max(cells.length * 2, col + 1)];
+                System.arraycopy(cells, 0, grown, 0, size);
+                cells = grown;
+            }
+            for (int i = size; i < col; i++) cells[i] = "";
+            cells[col] = formattedValue == null ? "" : formattedValue;
+            if (col >= size) size = col + 1;
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+        }
+
+        // "AB12" -> 27
+        private static int columnIndex(String ref) {
+            int col = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char ch = ref.charAt(i);
+                if (ch < 'A' || ch > 'Z') break;
+                col = col * 26 + (ch - 'A' + 1);
+            }
+            return col - 1;
+        }
+    }
+}
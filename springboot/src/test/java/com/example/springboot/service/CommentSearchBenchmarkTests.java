@@ -0,0 +1,249 @@
+package com.example.springboot.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.example.springboot.entity.CommentDocument;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 评论检索压测，需要一个可写的 ES，默认不运行：
+ * mvn test -Dtest=CommentSearchBenchmarkTests -Des.bench.url=http://localhost:9200
+ *   [-Des.bench.user=elastic -Des.bench.password=...] [-Des.bench.docs=3000000]
+ *   [-Des.bench.queries=1000] [-Des.bench.threads=16]
+ * - 用户名子串：leading wildcard（*name*）与 username.ngram + match_phrase
+ * - 过滤条件：全部放 bool.must 与放 bool.filter（并发）
+ * 按模板建临时索引灌入随机评论，结束后删除
+ */
+@EnabledIfSystemProperty(named = "es.bench.url", matches = ".+")
+class CommentSearchBenchmarkTests {
+
+    private static final String INDEX = "comment_bench";
+    private static final String CHARS = "张王李赵刘陈杨黄周吴小大爱追星看剧游戏日常快乐的abcdefghijklmnopqrstuvwxyz0123456789_";
+    private static final String[] WORDS = {"好看", "难看", "喜欢", "支持", "失望", "演技", "剧情", "音乐", "画面", "推荐", "一般", "感动"};
+
+    private static final int DOCS = Integer.getInteger("es.bench.docs", 3_000_000);
+    private static final int QUERIES = Integer.getInteger("es.bench.queries", 1000);
+    private static final int THREADS = Integer.getInteger("es.bench.threads", 16);
+
+    private static RestClient restClient;
+    private static ElasticsearchClient client;
+    private static List<String> names;
+
+    @BeforeAll
+    static void load() throws Exception {
+        restClient = restClient();
+        client = new ElasticsearchClient(new RestClientTransport(restClient, new JacksonJsonpMapper()));
+        createIndex();
+
+        Random random = new Random(42);
+        names = new ArrayList<>();
+        List<BulkOperation> batch = new ArrayList<>();
+        for (int i = 0; i < DOCS; i++) {
+            CommentDocument doc = randomDocument(i, random);
+            if (names.size() < 10_000) names.add(doc.getUsername());
+            batch.add(BulkOperation.of(op -> op.index(idx -> idx.index(INDEX).id(doc.getCid()).document(doc))));
+            if (batch.size() == 5000 || i == DOCS - 1) {
+                List<BulkOperation> current = batch;
+                client.bulk(b -> b.operations(current));
+                batch = new ArrayList<>();
+            }
+        }
+        client.indices().putSettings(p -> p.index(INDEX).settings(s -> s.refreshInterval(t -> t.time("1s"))));
+        client.indices().refresh(r -> r.index(INDEX));
+        client.indices().forcemerge(f -> f.index(INDEX).maxNumSegments(1L));
+    }
+
+    @AfterAll
+    static void cleanUp() throws Exception {
+        if (client != null) client.indices().delete(d -> d.index(INDEX));
+        if (restClient != null) restClient.close();
+    }
+
+    @Test
+    void usernameWildcardVersusNgram() throws Exception {
+        Random random = new Random(7);
+        // 同一批子串分别用两种写法查询
+        List<String> needles = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            String name = names.get(random.nextInt(names.size()));
+            int len = Math.min(name.length(), 2 + random.nextInt(3));
+            int start = random.nextInt(name.length() - len + 1);
+            needles.add(name.substring(start, start + len));
+        }
+
+        Function<String, Query> wildcard = s -> Query.of(q -> q.wildcard(w -> w.field("username").value("*" + s + "*")));
+        Function<String, Query> ngram = s -> Query.of(q -> q.matchPhrase(m -> m.field("username.ngram").query(s)));
+
+        // 结果数一致才说明 ngram 写法与通配符语义相同
+        for (String needle : needles.subList(0, Math.min(50, needles.size()))) {
+            assertEquals(count(wildcard.apply(needle)), count(ngram.apply(needle)), needle);
+        }
+
+        long[] before = run(needles, wildcard, 1);
+        long[] after = run(needles, ngram, 1);
+        report("username 子串检索", "wildcard *name*", before, "ngram match_phrase", after, 1);
+    }
+
+    @Test
+    void mustVersusFilterUnderLoad() throws Exception {
+        Random random = new Random(11);
+        // 模拟看板查询：少量固定的项目 / 情感 / 时间段组合反复出现，部分带关键词
+        List<Map<String, Object>> conditions = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            Map<String, Object> c = new HashMap<>();
+            c.put("uuid", "project-" + random.nextInt(10));
+            if (random.nextBoolean()) c.put("sentiment", (long) random.nextInt(3));
+            if (random.nextBoolean()) c.put("month", 1 + random.nextInt(12));
+            if (random.nextInt(4) == 0) c.put("minLike", 100.0);
+            if (random.nextInt(3) == 0) c.put("keyword", WORDS[random.nextInt(WORDS.length)]);
+            conditions.add(c);
+        }
+
+        Function<Map<String, Object>, Query> must = c -> Query.of(q -> q.bool(b -> clauses(c, b, true)));
+        Function<Map<String, Object>, Query> filter = c -> Query.of(q -> q.bool(b -> clauses(c, b, false)));
+
+        for (Map<String, Object> c : conditions.subList(0, Math.min(50, conditions.size()))) {
+            assertEquals(count(must.apply(c)), count(filter.apply(c)));
+        }
+
+        client.indices().clearCache(c -> c.index(INDEX));
+        long[] before = run(conditions, must, THREADS);
+        client.indices().clearCache(c -> c.index(INDEX));
+        long[] after = run(conditions, filter, THREADS);
+        report("过滤条件（" + THREADS + " 并发）", "bool.must", before, "bool.filter", after, THREADS);
+    }
+
+    private static BoolQuery.Builder clauses(Map<String, Object> c, BoolQuery.Builder b, boolean scoreAll) {
+        List<Query> predicates = new ArrayList<>();
+        predicates.add(Query.of(q -> q.term(t -> t.field("uuid").value((String) c.get("uuid")))));
+        if (c.containsKey("sentiment")) {
+            predicates.add(Query.of(q -> q.term(t -> t.field("sentiment_label").value((Long) c.get("sentiment")))));
+        }
+        if (c.containsKey("month")) {
+            String month = String.format("2024-%02d", (Integer) c.get("month"));
+            predicates.add(Query.of(q -> q.range(r -> r.date(d -> d.field("comment_time").gte(month + "-01").lte(month + "-28")))));
+        }
+        if (c.containsKey("minLike")) {
+            predicates.add(Query.of(q -> q.range(r -> r.number(n -> n.field("like_count").gte((Double) c.get("minLike"))))));
+        }
+        if (c.containsKey("keyword")) {
+            b.must(m -> m.match(t -> t.field("content_clean").query((String) c.get("keyword"))));
+        }
+        return scoreAll ? b.must(predicates) : b.filter(predicates);
+    }
+
+    private static RestClient restClient() {
+        var builder = RestClient.builder(HttpHost.create(System.getProperty("es.bench.url")));
+        String user = System.getProperty("es.bench.user");
+        if (user != null) {
+            BasicCredentialsProvider credentials = new BasicCredentialsProvider();
+            credentials.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(user, System.getProperty("es.bench.password", "")));
+            builder.setHttpClientConfigCallback(h -> h.setDefaultCredentialsProvider(credentials));
+        }
+        return builder.build();
+    }
+
+    // 取模板里的 settings / mappings 建索引，与线上映射一致
+    private static void createIndex() throws Exception {
+        if (client.indices().exists(e -> e.index(INDEX)).value()) {
+            client.indices().delete(d -> d.index(INDEX));
+        }
+        JsonNode template;
+        try (InputStream in = CommentSearchBenchmarkTests.class.getClassLoader().getResourceAsStream("es/comment_index_template.json")) {
+            template = new ObjectMapper().readTree(in).get("template");
+        }
+        String body = template.toString();
+        client.indices().create(c -> c.index(INDEX).withJson(new StringReader(body)));
+        client.indices().putSettings(p -> p.index(INDEX).settings(s -> s.numberOfReplicas("0").refreshInterval(t -> t.time("-1"))));
+    }
+
+    private static CommentDocument randomDocument(int i, Random random) {
+        CommentDocument doc = new CommentDocument();
+        doc.setCid(String.valueOf(i));
+        doc.setUuid("project-" + random.nextInt(10));
+        doc.setPid(String.valueOf(random.nextInt(10)));
+
+        int len = 3 + random.nextInt(10);
+        StringBuilder name = new StringBuilder(len);
+        for (int k = 0; k < len; k++) name.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        doc.setUsername(name.toString());
+
+        StringBuilder content = new StringBuilder();
+        for (int k = 0, n = 2 + random.nextInt(6); k < n; k++) content.append(WORDS[random.nextInt(WORDS.length)]);
+        doc.setContent_clean(content.toString());
+
+        doc.setSentiment_label(random.nextInt(3));
+        doc.setLike_count(random.nextInt(1000));
+        doc.setComment_time(String.format("2024-%02d-%02d %02d:%02d:00",
+                1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24), random.nextInt(60)));
+        return doc;
+    }
+
+    private static long count(Query query) throws Exception {
+        return client.count(c -> c.index(INDEX).query(query)).count();
+    }
+
+    // 先预热再计时，threads 个线程分摊同一批查询，记录每次客户端往返耗时（微秒）
+    private static <T> long[] run(List<T> inputs, Function<T, Query> toQuery, int threads) throws Exception {
+        for (int i = 0; i < Math.min(100, inputs.size()); i++) {
+            search(toQuery.apply(inputs.get(i)));
+        }
+        long[] micros = new long[inputs.size()];
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < inputs.size(); i++) {
+                int n = i;
+                futures.add(pool.submit(() -> {
+                    long start = System.nanoTime();
+                    search(toQuery.apply(inputs.get(n)));
+                    micros[n] = (System.nanoTime() - start) / 1000;
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        Arrays.sort(micros);
+        return micros;
+    }
+
+    private static void search(Query query) throws Exception {
+        // 与检索接口一致：取一页并统计总数
+        client.search(s -> s.index(INDEX).query(query).size(10).trackTotalHits(t -> t.enabled(true)), CommentDocument.class);
+    }
+
+    private static void report(String title, String beforeName, long[] before, String afterName, long[] after, int threads) {
+        System.out.printf("📈 %s（%d 文档，%d 次查询，%d 线程，单位 ms）%n", title, DOCS, before.length, threads);
+        System.out.printf("   %-20s p50=%.1f p99=%.1f max=%.1f%n", beforeName, pct(before, 50), pct(before, 99), pct(before, 100));
+        System.out.printf("   %-20s p50=%.1f p99=%.1f max=%.1f%n", afterName, pct(after, 50), pct(after, 99), pct(after, 100));
+    }
+
+    private static double pct(long[] sorted, int p) {
+        int i = Math.min(sorted.length - 1, (int) Math.ceil(p / 100.0 * sorted.length) - 1);
+        return sorted[Math.max(i, 0)] / 1000.0;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.springboot.service;
+
+import com.example.springboot.dto.CommentSearchQuery;
+import com.example.springboot.entity.CommentDocument;
+import com.example.springboot.exception.CustomException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本地 Lucene 检索：在临时目录上建索引，校验过滤条件、分页、局部更新与回填标记
+ */
+class LuceneCommentSearchEngineTests {
+
+    private static final String TENANT = "u1";
+
+    @TempDir
+    Path dir;
+
+    private LuceneCommentSearchEngine engine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        engine = open(dir);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+
+    private static LuceneCommentSearchEngine open(Path dir) throws Exception {
+        LuceneCommentSearchEngine e = new LuceneCommentSearchEngine();
+        set(e, "engine", "lucene");
+        set(e, "backupEnabled", false);
+        set(e, "path", dir.toString());
+        set(e, "ramBufferMb", 16d);
+        e.init();
+        return e;
+    }
+
+    private static void set(Object target, String name, Object value) throws Exception {
+        Field f = target.getClass().getDeclaredField(name);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+
+    private static CommentDocument doc(String uuid, String cid, String username, String content,
+                                       int like, int sentiment, String time) {
+        CommentDocument d = new CommentDocument();
+        d.setCid(cid);
+        d.setPid("p1");
+        d.setUuid(uuid);
+        d.setUsername(username);
+        d.setContent_clean(content);
+        d.setLike_count(like);
+        d.setSentiment_label(sentiment);
+        d.setComment_time(time);
+        return d;
+    }
+
+    private static CommentSearchQuery query(String uuid, String keyword, String username, Integer sentiment,
+                                            String start, String end, Integer minLike, Integer maxLike,
+                                            int page, int size) {
+        return CommentSearchQuery.of(uuid, null, keyword, username, sentiment, start, end, minLike, maxLike,
+                page, size, false, null);
+    }
+
+    private static List<String> cids(Map<String, Object> result) {
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> data = (List<Map<String, Object>>) result.get("data");
+        return data.stream().map(r -> (String) r.get("cid")).toList();
+    }
+
+    @Test
+    void rejectsSearchUntilBackfilled() throws Exception {
+        engine.index(doc(TENANT, "c1", "张三", "好看", 1, 1, "2025-10-01 08:00:00"));
+        assertThrows(CustomException.class, () -> engine.search(query(TENANT, null, null, null, null, null, null, null, 0, 10)));
+
+        engine.markBackfilled();
+        engine.refresh();
+        assertEquals(1L, engine.search(query(TENANT, null, null, null, null, null, null, null, 0, 10)).get("total"));
+
+        // 回填标记落盘，重新打开后仍然有效；没有目录的租户确实没有数据
+        engine.close();
+        engine = open(dir);
+        assertEquals(0L, engine.search(query("u2", null, null, null, null, null, null, null, 0, 10)).get("total"));
+    }
+
+    @Test
+    void appliesFilters() {
+        engine.index(doc(TENANT, "c1", "Alice王", "剧情很好看", 10, 1, "2025-10-01 08:00:00"));
+        engine.index(doc(TENANT, "c2", "bob", "演员演技一般", 200, 0, "2025-10-02 09:00:00"));
+        engine.index(doc(TENANT, "c3", "小王子", "剧情拖沓", 50, -1, "2025-10-03 23:59:59"));
+        engine.index(doc("u2", "c4", "王五", "剧情很好看", 10, 1, "2025-10-01 08:00:00"));
+        engine.markBackfilled();
+        engine.refresh();
+
+        // 用户名子串，不区分大小写
+        assertEquals(List.of("c3", "c1"), cids(engine.search(query(TENANT, null, "王", null, null, null, null, null, 0, 10))));
+        assertEquals(List.of("c1"), cids(engine.search(query(TENANT, null, "ALI", null, null, null, null, null, 0, 10))));
+        assertEquals(List.of("c3"), cids(engine.search(query(TENANT, null, "王子", null, null, null, null, null, 0, 10))));
+        assertEquals(List.of(), cids(engine.search(query(TENANT, null, "王a", null, null, null, null, null, 0, 10))));
+
+        // 关键词按相关度排序，只比较命中集合
+        assertEquals(Set.of("c1", "c3"), Set.copyOf(cids(engine.search(query(TENANT, "剧情", null, null, null, null, null, null, 0, 10)))));
+        assertEquals(List.of("c2"), cids(engine.search(query(TENANT, null, null, 0, null, null, null, null, 0, 10))));
+        assertEquals(List.of("c3", "c2"), cids(engine.search(query(TENANT, null, null, null, null, null, 20, null, 0, 10))));
+        assertEquals(List.of("c3", "c1"), cids(engine.search(query(TENANT, null, null, null, null, null, null, 100, 0, 10))));
+        // 只给日期时上限包含当天
+        assertEquals(List.of("c3", "c2"), cids(engine.search(query(TENANT, null, null, null, "2025-10-02", "2025-10-03", null, null, 0, 10))));
+
+        // 不带 uuid 时检索全部租户
+        assertEquals(4L, engine.search(query(null, null, null, null, null, null, null, null, 0, 10)).get("total"));
+    }
+
+    @Test
+    void pagesByTimeDescending() {
+        for (int i = 0; i < 25; i++) {
+            engine.index(doc(TENANT, String.format("c%02d", i), "u", "评论" + i, i, 1,
+                    String.format("2025-10-01 08:%02d:00", i)));
+        }
+        engine.markBackfilled();
+        engine.refresh();
+
+        Map<String, Object> page = engine.search(query(TENANT, null, null, null, null, null, null, null, 1, 10));
+        assertEquals(25L, page.get("total"));
+        assertEquals(List.of("c14", "c13", "c12", "c11", "c10", "c09", "c08", "c07", "c06", "c05"), cids(page));
+        assertEquals(List.of("c04", "c03", "c02", "c01", "c00"),
+                cids(engine.search(query(TENANT, null, null, null, null, null, null, null, 2, 10))));
+        assertThrows(CustomException.class, () -> engine.search(query(TENANT, null, null, null, null, null, null, null, 1000, 20)));
+    }
+
+    @Test
+    void updateMergesIntoStoredDocument() {
+        engine.index(doc(TENANT, "c1", "张三", "剧情很好看", 10, 0, "2025-10-01 08:00:00"));
+        // 尚未 refresh 的文档也能更新
+        engine.update("c1", TENANT, Map.of("sentiment_label", 1));
+        engine.update("missing", TENANT, Map.of("sentiment_label", 1));
+        engine.markBackfilled();
+        engine.refresh();
+
+        Map<String, Object> result = engine.search(query(TENANT, null, null, 1, null, null, null, null, 0, 10));
+        assertEquals(1L, result.get("total"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> row = ((List<Map<String, Object>>) result.get("data")).get(0);
+        assertEquals("剧情很好看", row.get("content_clean"));
+        assertEquals("张三", row.get("username"));
+        assertEquals(10, row.get("like_count"));
+        assertEquals(0L, engine.search(query(TENANT, null, null, 0, null, null, null, null, 0, 10)).get("total"));
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.springboot.utils;
+
+import com.example.springboot.entity.Comment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentCleanerTests {
+
+    private static final Set<String> KEEP_EMOJIS = Set.of("😂", "👍", "❤️");
+
+    private static Comment raw(String cid, String parentCid, String username, String content) {
+        Comment c = new Comment();
+        c.setCid(cid);
+        c.setParentCid(parentCid);
+        c.setUsername(username);
+        c.setContent(content);
+        c.setCommentTime(LocalDateTime.of(2025, 10, 25, 8, 30, 5));
+        c.setPid("p1");
+        c.setCleanStatus("raw");
+        return c;
+    }
+
+    private static CommentCleaner cleaner(String... options) {
+        return new CommentCleaner(List.of(options), KEEP_EMOJIS, 2, 255);
+    }
+
+    /**
+     * 与 data_cleaning.py 的网络用语替换逐条对照（同一张表、同样按表顺序 str.replace）
+     */
+    @Test
+    void slangReplacementMatchesFlask() {
+        String[][] cases = {
+                {"yyds太好了233", "永远的神太好了哈哈哈"},
+                {"2333", "哈哈哈3"},
+                {"dbq，awsl xswl", "对不起，啊我死了 笑死我了"},
+                {"YYDS", "YYDS"},
+                {"普通评论", "普通评论"},
+        };
+        CommentCleaner cleaner = cleaner(CommentCleaner.REPLACE_SLANG);
+        for (String[] c : cases) {
+            assertEquals(c[1], cleaner.clean(raw("1", null, "u", c[0])).getContent(), c[0]);
+        }
+    }
+
+    @Test
+    void cleanedCopyKeepsReplyLinkAndLeavesRawUntouched() {
+        Comment parent = raw("a", null, "u1", "父评论");
+        Comment child = raw("b", "a", "u2", "回复");
+        CommentCleaner cleaner = cleaner();
+
+        Comment cleanedParent = cleaner.clean(parent);
+        Comment cleanedChild = cleaner.clean(child);
+
+        assertEquals("cleaned", cleanedParent.getCleanStatus());
+        assertEquals("raw", parent.getCleanStatus());
+        assertNotEquals("a", cleanedParent.getCid());
+        assertEquals(cleanedParent.getCid(), cleanedChild.getParentCid());
+        assertNull(cleanedParent.getParentCid());
+    }
+
+    @Test
+    void appliesStrippingAndFilters() {
+        CommentCleaner cleaner = cleaner(CommentCleaner.STRIP_URL, CommentCleaner.STRIP_EMOJI,
+                CommentCleaner.NORMALIZE_SPACE, CommentCleaner.DROP_MISSING,
+                CommentCleaner.LENGTH_FILTER, CommentCleaner.DROP_DUPLICATE);
+
+        assertEquals("看这个 太好笑了😂",
+                cleaner.clean(raw("1", null, "u", "看这个 https://v.douyin.com/abc123 　太好笑了😂🎉")).getContent());
+        assertEquals("支持❤️👍", cleaner.clean(raw("2", null, "u", "支持❤️👍🔥")).getContent());
+
+        // 去掉链接后为空 -> 删除缺失行；剩 1 个字 -> 长度过滤
+        assertNull(cleaner.clean(raw("3", null, "u", "http://x.cn")));
+        assertNull(cleaner.clean(raw("4", null, "u", "好🎉")));
+        assertNull(cleaner.clean(raw("5", null, " ", "没有用户名")));
+
+        // 删除重复行：清洗后完全相同的行只保留第一条
+        assertNotNull(cleaner.clean(raw("6", null, "u", "重复 内容")));
+        assertNull(cleaner.clean(raw("7", null, "u", "重复   内容")));
+    }
+
+    /**
+     * 大块并行清洗时，重复行也按原顺序保留第一条
+     */
+    @Test
+    void dropDuplicateKeepsFirstOccurrenceInParallelChunk() {
+        List<Comment> chunk = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            chunk.add(raw(String.valueOf(i), null, "u", "评论" + (i % 100)));
+        }
+        List<Comment> cleaned = cleaner(CommentCleaner.DROP_DUPLICATE).cleanChunk(chunk);
+
+        assertEquals(100, cleaned.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("评论" + i, cleaned.get(i).getContent());
+        }
+    }
+
+    /**
+     * 清洗编号每次上传不同；同一次上传内父评论在后面的块出现也能对应上
+     */
+    @Test
+    void cleanedCidIsPerUpload() {
+        CommentCleaner first = cleaner();
+        CommentCleaner second = cleaner();
+
+        Comment child = first.clean(raw("b", "a", "u2", "回复"));
+        Comment parent = first.cleanChunk(List.of(raw("a", null, "u1", "父评论"))).get(0);
+
+        assertEquals(parent.getCid(), child.getParentCid());
+        assertNotEquals(parent.getCid(), second.clean(raw("a", null, "u1", "父评论")).getCid());
+    }
+
+    /**
+     * 与 Flask dropna 一致的部分：时间为空的行被删除
+     */
+    @Test
+    void dropMissingDropsRowsWithoutTime() {
+        Comment c = raw("1", null, "u", "有内容");
+        c.setCommentTime(null);
+        assertNull(cleaner(CommentCleaner.DROP_MISSING).clean(c));
+    }
+
+    @Test
+    void fillsDefaultsWhenNotDroppingMissing() {
+        Comment c = cleaner(CommentCleaner.FILL_DEFAULT).clean(raw("1", null, "", ""));
+        assertEquals("未知", c.getUsername());
+        assertEquals("未知", c.getContent());
+    }
+
+    /**
+     * 吞吐：Java 引擎整块清洗（全部规则，mvn test -Dbench=true 时运行）
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmarkCleanChunk() {
+        int rows = 200_000;
+        List<Comment> chunk = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            chunk.add(raw(String.valueOf(i), null, "用户" + (i % 5000),
+                    "yyds 第" + i + "条评论 https://v.douyin.com/" + i + " 😂🎉  xswl"));
+        }
+        CommentCleaner cleaner = cleaner(CommentCleaner.DROP_MISSING, CommentCleaner.DROP_DUPLICATE,
+                CommentCleaner.REPLACE_SLANG, CommentCleaner.STRIP_URL, CommentCleaner.STRIP_EMOJI,
+                CommentCleaner.NORMALIZE_SPACE, CommentCleaner.LENGTH_FILTER);
+
+        long t0 = System.nanoTime();
+        List<Comment> cleaned = cleaner.cleanChunk(chunk);
+        long nanos = System.nanoTime() - t0;
+
+        assertEquals(rows, cleaned.size());
+        assertEquals("永远的神 第0条评论 😂 笑死我了", cleaned.get(0).getContent());
+        System.out.printf("📈 Java 清洗引擎：%d 行，%.0f 行/秒%n", rows, rows * 1e9 / nanos);
+    }
+
+    /**
+     * 与 Flask /clean 对比：同一份生成的抖音评论 CSV，只用两边都支持的选项（mvn test -Dbench=true 时运行）
+     * - Java 计 解析 + 清洗；Flask 计整个请求（上传、pandas 清洗、写结果文件）
+     * - Flask 地址 -Dbench.flask.url（默认 http://127.0.0.1:5001），连不上时只输出 Java 侧数据
+     * - 删除重复行两边结果条数不同（Flask 比较含随机 cid 的全部列），见 CommentCleaner 类注释
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmarkAgainstFlask() throws Exception {
+        int rows = 200_000;
+        StringBuilder sb = new StringBuilder("评论人,评论时间,评论内容,点赞数\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append("用户").append(i % 5000).append(",2025-10-25 08:30:05,yyds 第").append(i % 50_000)
+                    .append("条评论 xswl,").append(i % 100).append('\n');
+        }
+        byte[] csv = sb.toString().getBytes(StandardCharsets.UTF_8);
+        List<String> options = List.of(CommentCleaner.DROP_MISSING, CommentCleaner.DROP_DUPLICATE, CommentCleaner.REPLACE_SLANG);
+
+        long t0 = System.nanoTime();
+        List<Comment> chunk = new ArrayList<>(rows);
+        try (CsvStreamReader reader = new CsvStreamReader(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8))) {
+            reader.read((fields, size, rowNum) -> {
+                if (rowNum == 0) return;
+                Comment c = raw(String.valueOf(rowNum), null, fields[0], fields[2]);
+                c.setCommentTime(CommentTimeParser.parse(fields[1]));
+                c.setLikeCount(Integer.parseInt(fields[3]));
+                chunk.add(c);
+            });
+        }
+        List<Comment> cleaned = new CommentCleaner(options, KEEP_EMOJIS, 2, 255).cleanChunk(chunk);
+        long javaNanos = System.nanoTime() - t0;
+        assertEquals("永远的神 第0条评论 笑死我了", cleaned.get(0).getContent());
+        System.out.printf("📈 Java 清洗引擎（解析 + 清洗）：%d 行 -> %d 行，%.0f 行/秒%n",
+                rows, cleaned.size(), rows * 1e9 / javaNanos);
+
+        String url = System.getProperty("bench.flask.url", "http://127.0.0.1:5001") + "/clean";
+        String boundary = "----bench" + System.nanoTime();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"project_name\"\r\n\r\nbench\r\n"
+                + "--" + boundary + "\r\nContent-Disposition: form-data; name=\"options\"\r\n\r\n"
+                + "[\"" + String.join("\",\"", options) + "\"]\r\n"
+                + "--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"bench.csv\"\r\n"
+                + "Content-Type: text/csv\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(csv);
+        body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+
+        long t1 = System.nanoTime();
+        HttpResponse<String> response;
+        try {
+            response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            System.out.printf("⚠️ 连不上 Flask（%s），跳过对比：%s%n", url, e.getMessage());
+            return;
+        }
+        long flaskNanos = System.nanoTime() - t1;
+        assertEquals(200, response.statusCode(), response.body());
+        String summary = response.body().substring(0, Math.min(120, response.body().length()));
+        System.out.printf("📈 Flask /clean（上传 + 清洗 + 写结果文件）：%d 行，%.0f 行/秒，响应：%s%n",
+                rows, rows * 1e9 / flaskNanos, summary);
+        System.out.printf("📈 Java / Flask 吞吐比：%.1f%n", (double) flaskNanos / javaNanos);
+    }
+}
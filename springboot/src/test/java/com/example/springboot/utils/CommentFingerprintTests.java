@@ -0,0 +1,31 @@
+package com.example.springboot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentFingerprintTests {
+
+    // 期望值 = CONV(LEFT(MD5(CONCAT_WS(CHAR(0), ...)), 15), 16, 10)，即 SQL_EXPRESSION 在 MySQL 中的结果
+    private static long sql(String md5Hex) {
+        return Long.parseLong(md5Hex.substring(0, 15), 16);
+    }
+
+    @Test
+    void matchesSqlExpressionOnKnownVectors() {
+        // MD5("张三\0这部剧太好看了\0raw")
+        assertEquals(sql("c5b762899d92a2919516d0bac0f8145e"), CommentFingerprint.of("张三", "这部剧太好看了", "raw"));
+        // IFNULL(username, '') -> MD5("\0hello\0cleaned")
+        assertEquals(sql("413911bb71a8fe2cd3c766ec9c797bce"), CommentFingerprint.of(null, "hello", "cleaned"));
+        // clean_status 为 NULL 时 CONCAT_WS 连同分隔符一起跳过 -> MD5("bob\0")
+        assertEquals(sql("257419e46ee80b0842f4edb1880919d4"), CommentFingerprint.of("bob", null, null));
+        // 空串不会被跳过 -> MD5("\0\0")
+        assertEquals(sql("c4103f122d27677c9db144cae1394a66"), CommentFingerprint.of("", "", ""));
+    }
+
+    @Test
+    void fitsInSignedBigint() {
+        assertTrue(CommentFingerprint.of("a", "b", "raw") >= 0);
+        assertNotEquals(CommentFingerprint.of("a", "b", null), CommentFingerprint.of("a", "b", ""));
+    }
+}
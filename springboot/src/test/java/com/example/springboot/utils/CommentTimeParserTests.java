@@ -0,0 +1,17 @@
+package com.example.springboot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentTimeParserTests {
+
+    @Test
+    void parsesCommentTime() {
+        assertEquals(LocalDateTime.of(2025, 10, 25, 8, 30, 5), CommentTimeParser.parse("2025-10-25 08:30:05"));
+        assertNull(CommentTimeParser.parse("2025-13-25 08:30:05"));
+        assertNull(CommentTimeParser.parse("3天前"));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.springboot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvStreamWriterTests {
+
+    @Test
+    void writerOutputReadsBack() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvStreamWriter writer = CsvStreamWriter.excelUtf8(out)) {
+            writer.writeRow("cid", "content", "sentiment");
+            writer.writeRow(1, "你好,世界", -1);
+            writer.writeRow(2, "他说\"好\"\n第二行", null);
+            writer.writeRow(3, "=HYPERLINK(\"x\")", 0);
+        }
+
+        List<List<String>> rows = new ArrayList<>();
+        try (CsvStreamReader reader = new CsvStreamReader(new StringReader(out.toString(StandardCharsets.UTF_8)))) {
+            reader.read((fields, size, rowNum) -> rows.add(new ArrayList<>(Arrays.asList(fields).subList(0, size))));
+        }
+
+        assertEquals(4, rows.size());
+        assertEquals(List.of("cid", "content", "sentiment"), rows.get(0));
+        assertEquals(List.of("1", "你好,世界", "-1"), rows.get(1));
+        assertEquals(List.of("2", "他说\"好\"\n第二行", ""), rows.get(2));
+        // 公式开头的内容加 ' 前缀
+        assertEquals(List.of("3", "'=HYPERLINK(\"x\")", "0"), rows.get(3));
+    }
+
+    @Test
+    void escapesTabAndCarriageReturnPrefixes() throws IOException {
+        StringWriter out = new StringWriter();
+        try (CsvStreamWriter writer = new CsvStreamWriter(out)) {
+            writer.writeRow("\t=1+1", "\r=1+1", "a\t=1");
+        }
+
+        List<String> row = new ArrayList<>();
+        try (CsvStreamReader reader = new CsvStreamReader(new StringReader(out.toString()))) {
+            reader.read((fields, size, rowNum) -> row.addAll(Arrays.asList(fields).subList(0, size)));
+        }
+        // 制表符 / 回车开头同样加 ' 前缀，不在开头的不处理
+        assertEquals(List.of("'\t=1+1", "'\r=1+1", "a\t=1"), row);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.springboot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeywordExtractorTests {
+
+    @Test
+    void extractsChineseRunsAndWordsWithoutStopWords() {
+        List<String> words = KeywordExtractor.extract("演技炸裂，真的，我们 都爱看 MV2024 哈");
+        assertEquals(List.of("演技炸裂", "都爱看", "mv2024"), words);
+    }
+
+    @Test
+    void suggestInputsKeepFirstOccurrencesUpToLimit() {
+        assertEquals(List.of("好看", "剧情"), KeywordExtractor.suggestInputs("好看！剧情，好看！演员", 2));
+        assertTrue(KeywordExtractor.suggestInputs(null, 5).isEmpty());
+    }
+
+    /**
+     * 长句不切段：只有被标点隔开的短片段作为联想输入
+     */
+    @Test
+    void suggestInputsSkipLongRuns() {
+        assertEquals(List.of("演技炸裂", "mv"),
+                KeywordExtractor.suggestInputs("这部剧的剧情真的是太精彩了，演技炸裂 MV", 20));
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.springboot.utils;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XlsxStreamReaderTests {
+
+    @TempDir
+    Path tempDir;
+
+    private File writeWorkbook(int sheets, int rows) throws Exception {
+        File file = tempDir.resolve("comments.xlsx").toFile();
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(100);
+             FileOutputStream out = new FileOutputStream(file)) {
+            for (int s = 0; s < sheets; s++) {
+                Sheet sheet = wb.createSheet("sheet" + s);
+                Row header = sheet.createRow(0);
+                String[] titles = {"评论人", "评论时间", "评论内容", "点赞数", "二级评论人", "二级评论时间", "二级评论内容", "二级评论点赞"};
+                for (int i = 0; i < titles.length; i++) header.createCell(i).setCellValue(titles[i]);
+                for (int r = 1; r <= rows; r++) {
+                    Row row = sheet.createRow(r);
+                    row.createCell(0).setCellValue("用户" + r);
+                    row.createCell(1).setCellValue("2025-10-25 08:30:05");
+                    row.createCell(2).setCellValue("评论内容 " + r);
+                    row.createCell(3).setCellValue(r % 100);
+                    // 隔行留空二级评论，验证稀疏单元格
+                    if (r % 2 == 0) {
+                        row.createCell(4).setCellValue("回复" + r);
+                        row.createCell(6).setCellValue("回复内容 " + r);
+                    }
+                }
+            }
+            wb.write(out);
+            wb.dispose();
+        }
+        return file;
+    }
+
+    @Test
+    void readsSparseRowsAndAllSheetsInParallel() throws Exception {
+        File file = writeWorkbook(3, 10);
+
+        AtomicLong rows = new AtomicLong();
+        XlsxStreamReader.read(file, false, 1, (sheetIndex, rowNum, cells, size) -> {
+            assertEquals(0, sheetIndex);
+            if (rowNum == 2) {
+                assertEquals("用户2", cells[0]);
+                assertEquals("2", cells[3]);
+                assertEquals("", cells[5]);
+                assertEquals("回复内容 2", cells[6]);
+            }
+            if (rowNum == 1) assertEquals(4, size);
+            rows.incrementAndGet();
+        });
+        assertEquals(11, rows.get());
+
+        AtomicLong allRows = new AtomicLong();
+        XlsxStreamReader.read(file, true, 3, (sheetIndex, rowNum, cells, size) -> allRows.incrementAndGet());
+        assertEquals(33, allRows.get());
+    }
+
+    /**
+     * 内存 / 吞吐对比：SAX 流式 vs XSSFWorkbook DOM（mvn test -Dbench=true 时运行）
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void compareWithDomParser() throws Exception {
+        int rows = 50_000;
+        File file = writeWorkbook(1, rows);
+        Runtime rt = Runtime.getRuntime();
+
+        System.gc();
+        long before = rt.totalMemory() - rt.freeMemory();
+        long t0 = System.nanoTime();
+        long domRows = 0;
+        long domPeak;
+        DataFormatter fmt = new DataFormatter();
+        try (FileInputStream fis = new FileInputStream(file); Workbook wb = new XSSFWorkbook(fis)) {
+            domPeak = rt.totalMemory() - rt.freeMemory() - before;
+            for (Row row : wb.getSheetAt(0)) {
+                fmt.formatCellValue(row.getCell(2));
+                domRows++;
+            }
+        }
+        long domNanos = System.nanoTime() - t0;
+
+        System.gc();
+        long before2 = rt.totalMemory() - rt.freeMemory();
+        long[] streamPeak = {0};
+        AtomicLong streamRows = new AtomicLong();
+        long t1 = System.nanoTime();
+        XlsxStreamReader.read(file, false, 1, (sheetIndex, rowNum, cells, size) -> {
+            if (streamRows.incrementAndGet() % 10_000 == 0) {
+                streamPeak[0] = Math.max(streamPeak[0], rt.totalMemory() - rt.freeMemory() - before2);
+            }
+        });
+        long streamNanos = System.nanoTime() - t1;
+
+        assertEquals(rows + 1, domRows);
+        assertEquals(rows + 1, streamRows.get());
+        System.out.printf("📈 XLSX %d 行：DOM %.0f 行/秒 ~%d MB，SAX %.0f 行/秒 ~%d MB%n", rows,
+                domRows * 1e9 / domNanos, domPeak >> 20,
+                streamRows.get() * 1e9 / streamNanos, streamPeak[0] >> 20);
+    }
+}